@@ -0,0 +1,88 @@
+package src;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+// 轻量基准框架，按 JMH 的方式做预热迭代和测量迭代
+// 每个基准报告 ns/op、每次操作分配的字节数（B/op）、分配速率（MB/s）以及测量期间的 GC 次数和耗时，
+// 对应 JMH 的 -prof gc 输出
+final class Bench {
+    // 基准操作，返回值会被累加起来，防止 JIT 把整个调用优化掉
+    interface Op {
+        long run() throws Exception;
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+        (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static final List<GarbageCollectorMXBean> COLLECTORS = ManagementFactory.getGarbageCollectorMXBeans();
+
+    private static final int WARMUP_ITERATIONS = Integer.getInteger("bench.warmup", 3);
+    private static final int MEASURE_ITERATIONS = Integer.getInteger("bench.iterations", 5);
+    private static final long ITERATION_NANOS = Long.getLong("bench.iterationMillis", 1000) * 1_000_000L;
+
+    static long sink;
+
+    private Bench() {
+    }
+
+    static void header() {
+        System.out.printf("%-40s %14s %14s %12s %8s %10s%n", "基准", "ns/op", "B/op", "MB/s", "gc", "gc ms");
+    }
+
+    static void run(String name, Op op) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iteration(op);
+        }
+
+        long ops = 0;
+        long nanos = 0;
+        long bytes = 0;
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+            long allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            ops += iteration(op);
+            nanos += System.nanoTime() - start;
+            bytes += THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        gcCount = gcCount() - gcCount;
+        gcMillis = gcMillis() - gcMillis;
+
+        System.out.printf("%-40s %14.1f %14.1f %12.1f %8d %10d%n",
+            name,
+            (double) nanos / ops,
+            (double) bytes / ops,
+            bytes / 1048576.0 / (nanos / 1e9),
+            gcCount,
+            gcMillis);
+    }
+
+    // 一次迭代：至少执行一次，直到达到迭代时长，返回执行次数
+    private static long iteration(Op op) throws Exception {
+        long deadline = System.nanoTime() + ITERATION_NANOS;
+        long count = 0;
+        do {
+            sink += op.run();
+            count++;
+        } while (System.nanoTime() < deadline);
+        return count;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : COLLECTORS) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : COLLECTORS) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
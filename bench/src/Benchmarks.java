@@ -0,0 +1,264 @@
+package src;
+
+import javax.swing.*;
+import javax.swing.border.LineBorder;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+// 热点路径基准：抽取、历史记录读写、NumberRecord 格式化、动画帧离屏绘制
+// 运行：javac -encoding UTF-8 -d out src/*.java bench/src/*.java
+//      java -Xmx2g -cp out src.Benchmarks [基准名正则]
+// 可选参数：-Dbench.sizes=10000,100000,1000000 -Dbench.warmup=3 -Dbench.iterations=5 -Dbench.iterationMillis=1000
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Pattern filter = Pattern.compile(args.length > 0 ? args[0] : ".*");
+        String[] sizes = System.getProperty("bench.sizes", "10000,100000,1000000").split(",");
+
+        Bench.header();
+
+        // 抽取
+        DrawEngine engine = new DrawEngine();
+        int[] out = new int[engine.getDrawWidth()];
+        run(filter, "draw.generateFinalNumbers", () -> engine.draw()[0][0]);
+        run(filter, "draw.drawInto", () -> {
+            engine.drawInto(out, 0);
+            return out[0];
+        });
+
+        // NumberRecord 格式化
+        NumberRecord record = sampleRecord(engine, 1);
+        run(filter, "record.getDate", () -> record.getDate().length());
+        run(filter, "record.getTime", () -> record.getTime().length());
+        run(filter, "record.toString", () -> record.toString().length());
+
+        // 历史记录读写：二进制存储（loadHistory/saveHistory）和 CSV（导入/导出）
+        for (String size : sizes) {
+            int count = Integer.parseInt(size.trim());
+            String saveName = "history.saveHistory[" + count + "]";
+            String loadName = "history.loadHistory[" + count + "]";
+            String exportName = "csv.writeHistory[" + count + "]";
+            String importName = "csv.readHistory[" + count + "]";
+            String legacyImportName = "csv.readHistoryLegacy[" + count + "]";
+            if (!anyMatch(filter, saveName, loadName, exportName, importName, legacyImportName)) {
+                continue;
+            }
+            List<NumberRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                NumberRecord sample = sampleRecord(engine, i);
+                sample.setSequence(i);
+                records.add(sample);
+            }
+            File recordFile = File.createTempFile("history-bench", ".bin");
+            File stringFile = File.createTempFile("history-bench", ".strings");
+            File csvFile = File.createTempFile("history-bench", ".csv");
+            run(filter, saveName, () -> {
+                recordFile.delete();
+                stringFile.delete();
+                try (MappedHistoryStore store = MappedHistoryStore.open(recordFile, stringFile, engine.getLayout())) {
+                    for (NumberRecord sample : records) {
+                        store.write(sample);
+                    }
+                    return store.size();
+                }
+            });
+            DataManager.writeHistory(csvFile, records);
+            run(filter, exportName, () -> {
+                DataManager.writeHistory(csvFile, records);
+                return csvFile.length();
+            });
+            records.clear();
+            run(filter, loadName, () -> {
+                try (MappedHistoryStore store = MappedHistoryStore.open(recordFile, stringFile, engine.getLayout())) {
+                    return store.readAll().size();
+                }
+            });
+            run(filter, importName, () -> DataManager.readHistory(csvFile).size());
+            run(filter, legacyImportName, () -> legacyReadHistory(csvFile).size());
+            recordFile.delete();
+            stringFile.delete();
+            csvFile.delete();
+        }
+
+        // 动画帧：原来每帧重建全部分组的面板树、布局后整体重绘；现在只更新画板里的数字再绘制
+        DrawLayout layout = engine.getLayout();
+        int topCount = (layout.getGroupCount() + 1) / 2;
+        int width = 1800;
+        int height = 900;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        Random random = new Random(1);
+        String[] texts = new String[layout.getPickSize()];
+        JPanel content = new JPanel(new BorderLayout(30, 30));
+        JPanel topPanel = new JPanel(new GridLayout(1, topCount, 30, 0));
+        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 30, 30));
+        content.add(topPanel, BorderLayout.NORTH);
+        content.add(bottomPanel, BorderLayout.CENTER);
+        content.setSize(width, height);
+        Dimension panelSize = new Dimension(width / topCount - 60, (width / topCount - 60) * 2 / 3);
+        run(filter, "frame.legacyPanels", () -> {
+            topPanel.removeAll();
+            bottomPanel.removeAll();
+            for (int i = 0; i < layout.getGroupCount(); i++) {
+                for (int k = 0; k < texts.length; k++) {
+                    texts[k] = String.valueOf(random.nextInt(layout.getMaxValue()) + 1);
+                }
+                JPanel panel = legacyNumberPanel(texts, panelSize.height / 2);
+                panel.setPreferredSize(panelSize);
+                (i < topCount ? topPanel : bottomPanel).add(panel);
+            }
+            layoutTree(content);
+            content.printAll(g);
+            return image.getRGB(width / 2, height / 4);
+        });
+        NumberBoard board = new NumberBoard(layout, topCount, new Font("Helvetica", Font.BOLD, 150),
+            Color.BLACK, Color.GRAY, new Color(240, 244, 248));
+        board.setSize(width, height);
+        run(filter, "frame.numberBoard", () -> {
+            for (int i = 0; i < layout.getGroupCount(); i++) {
+                for (int k = 0; k < layout.getPickSize(); k++) {
+                    board.setNumber(i, k, random.nextInt(layout.getMaxValue()) + 1);
+                }
+            }
+            board.paint(g);
+            return image.getRGB(width / 2, height / 4);
+        });
+        g.dispose();
+
+        if (Bench.sink == 42) {
+            System.out.println();
+        }
+    }
+
+    private static void run(Pattern filter, String name, Bench.Op op) throws Exception {
+        if (filter.matcher(name).find()) {
+            Bench.run(name, op);
+        }
+    }
+
+    private static boolean anyMatch(Pattern filter, String... names) {
+        for (String name : names) {
+            if (filter.matcher(name).find()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // 生成一条带部分登记信息的记录
+    static NumberRecord sampleRecord(DrawEngine engine, int seq) {
+        NumberRecord record = new NumberRecord(engine.draw());
+        if (seq % 3 == 0) {
+            record.addRegistration(seq % engine.getLayout().getGroupCount(), "用户" + seq, "C" + (100000 + seq));
+        }
+        return record;
+    }
+
+    // 原来基于 String.split 的 CSV 读取，作为流式解析器的对照
+    // 只把字符集从平台默认改成 UTF-8，保证两边读到的内容一致
+    static List<NumberRecord> legacyReadHistory(File file) throws IOException {
+        List<NumberRecord> records = new ArrayList<>();
+        int groupCount = DrawLayout.current().getGroupCount();
+        int columnCount = DrawLayout.current().getColumnCount();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            boolean isFirstLine = true;
+            while ((line = reader.readLine()) != null) {
+                if (isFirstLine) {
+                    isFirstLine = false;
+                    continue;
+                }
+                String[] parts = line.split(",", -1);
+                if (parts.length < columnCount) {
+                    continue;
+                }
+                int[][] numbers = new int[groupCount][];
+                for (int i = 0; i < groupCount; i++) {
+                    String[] numParts = parts[i * 3 + 2].split("-");
+                    numbers[i] = new int[numParts.length];
+                    for (int k = 0; k < numParts.length; k++) {
+                        numbers[i][k] = Integer.parseInt(numParts[k].trim());
+                    }
+                }
+                LocalDateTime dateTime = LocalDateTime.of(
+                    LocalDate.parse(parts[0].trim()), LocalTime.parse(parts[1].trim()));
+                NumberRecord record = new NumberRecord(numbers, dateTime);
+                for (int i = 0; i < groupCount; i++) {
+                    record.addRegistration(i, parts[i * 3 + 3], parts[i * 3 + 4]);
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    // 原来每个动画帧都会创建的数字面板（createNumberPanel + updatePanelFontSize），作为画板的对照
+    static JPanel legacyNumberPanel(String[] numbers, int fontSize) {
+        Color background = new Color(240, 244, 248);
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.setBackground(background);
+        panel.setBorder(BorderFactory.createCompoundBorder(
+            new LineBorder(new Color(200, 200, 200), 2, true),
+            BorderFactory.createEmptyBorder(15, 15, 25, 15)));
+        JPanel centerPanel = new JPanel(new GridBagLayout());
+        centerPanel.setBackground(background);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.fill = GridBagConstraints.BOTH;
+        for (int k = 0; k < numbers.length; k++) {
+            if (k > 0) {
+                JLabel separator = new JLabel("·", SwingConstants.CENTER);
+                separator.setFont(new Font("Arial", Font.PLAIN, fontSize));
+                separator.setForeground(Color.GRAY);
+                gbc.weightx = 0.0;
+                centerPanel.add(legacyWrapLabel(separator, 100, background), gbc);
+                gbc.gridx++;
+            }
+            JLabel label = new JLabel(numbers[k], SwingConstants.CENTER);
+            label.setFont(new Font("Helvetica", Font.BOLD, fontSize));
+            label.setForeground(Color.BLACK);
+            gbc.weightx = 1.0;
+            centerPanel.add(legacyWrapLabel(label, 150, background), gbc);
+            gbc.gridx++;
+        }
+        panel.add(centerPanel, BorderLayout.CENTER);
+        return panel;
+    }
+
+    private static JPanel legacyWrapLabel(JLabel label, int width, Color background) {
+        label.setBackground(background);
+        label.setOpaque(true);
+        label.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
+        JPanel subPanel = new JPanel(new GridBagLayout());
+        subPanel.setBackground(background);
+        subPanel.setPreferredSize(new Dimension(width, 220));
+        subPanel.add(label);
+        return subPanel;
+    }
+
+    // 没有窗口时手动完成布局
+    private static void layoutTree(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents()) {
+            if (child instanceof Container) {
+                layoutTree((Container) child);
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package src;
+
+import java.util.random.RandomGenerator;
+
+// 抽取算法对比：旧的 do/while 拒绝采样 与 预计算数对表
+// 输出每次抽取的随机调用次数和耗时
+// 运行：javac -encoding UTF-8 -d out src/*.java bench/src/*.java && java -cp out src.DrawBenchmark [抽取次数]
+public class DrawBenchmark {
+
+    // 统计有界随机调用次数的包装
+    static class CountingGenerator implements RandomGenerator {
+        private final RandomGenerator delegate;
+        long calls;
+
+        CountingGenerator(RandomGenerator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public long nextLong() {
+            calls++;
+            return delegate.nextLong();
+        }
+
+        @Override
+        public int nextInt(int bound) {
+            calls++;
+            return delegate.nextInt(bound);
+        }
+    }
+
+    // 原 generateFinalNumbers 的拒绝采样写法（固定 5 组 4 选 2）
+    static void legacyDraw(RandomGenerator random, int[] out) {
+        for (int g = 0; g < 5; g++) {
+            int base = g * 4 + 1;
+            int num1 = random.nextInt(3) + base;
+            int num2;
+            do {
+                num2 = random.nextInt(4) + base;
+            } while (num2 <= num1);
+            out[g * 2] = num1;
+            out[g * 2 + 1] = num2;
+        }
+    }
+
+    public static void main(String[] args) {
+        int draws = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        DrawLayout layout = new DrawLayout(5, 4, 2);
+        int[] out = new int[layout.getDrawWidth()];
+        long sink = 0;
+
+        // 随机调用次数
+        CountingGenerator counting = new CountingGenerator(RandomProvider.newGenerator());
+        for (int i = 0; i < draws; i++) {
+            legacyDraw(counting, out);
+        }
+        double legacyCalls = (double) counting.calls / draws;
+
+        counting = new CountingGenerator(RandomProvider.newGenerator());
+        DrawEngine countedEngine = new DrawEngine(layout, counting);
+        for (int i = 0; i < draws; i++) {
+            countedEngine.drawInto(out, 0);
+        }
+        double tableCalls = (double) counting.calls / draws;
+
+        // 耗时（各预热一轮）
+        RandomGenerator random = RandomProvider.newGenerator();
+        DrawEngine engine = new DrawEngine(layout, RandomProvider.newGenerator());
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < draws; i++) {
+                legacyDraw(random, out);
+                sink += out[9];
+            }
+            long legacyNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < draws; i++) {
+                engine.drawInto(out, 0);
+                sink += out[9];
+            }
+            long tableNanos = System.nanoTime() - start;
+
+            if (round == 1) {
+                System.out.println("算法: " + RandomProvider.algorithm() + ", 抽取次数: " + draws);
+                System.out.printf("拒绝采样  随机调用/次: %.3f  ns/次: %.1f%n", legacyCalls, (double) legacyNanos / draws);
+                System.out.printf("数对表    随机调用/次: %.3f  ns/次: %.1f%n", tableCalls, (double) tableNanos / draws);
+            }
+        }
+        if (sink == 42) {
+            System.out.println();
+        }
+    }
+}
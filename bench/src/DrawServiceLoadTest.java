@@ -0,0 +1,107 @@
+package src;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+// DrawService 压测客户端：多个线程持续发送同一个请求，统计每秒请求数和延迟分位数
+// 运行：java -cp out src.DrawServiceLoadTest [服务地址，如 http://127.0.0.1:8080]
+//      不给地址时在本进程内以随机端口启动服务（会读取当前目录的 data/ 历史记录）
+// 可选参数：-Dload.threads=32 -Dload.seconds=10 -Dload.path=/history?limit=20 -Dload.method=GET
+//          压测 /draw 时用 -Dload.path=/draw -Dload.method=POST，每个请求都会写入历史记录
+public class DrawServiceLoadTest {
+
+    public static void main(String[] args) throws Exception {
+        int threads = Integer.getInteger("load.threads", 32);
+        int seconds = Integer.getInteger("load.seconds", 10);
+        String path = System.getProperty("load.path", "/history?limit=20");
+        String method = System.getProperty("load.method", "GET");
+
+        DrawService service = null;
+        String base;
+        if (args.length > 0) {
+            base = args[0];
+        } else {
+            DataManager.init().join();
+            service = DrawService.start("127.0.0.1", 0);
+            base = "http://127.0.0.1:" + service.getPort();
+        }
+        URI uri = URI.create(base + path);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(5)).build();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+            .method(method, HttpRequest.BodyPublishers.noBody())
+            .timeout(Duration.ofSeconds(10))
+            .build();
+
+        // 预热
+        for (int i = 0; i < 200; i++) {
+            client.send(request, HttpResponse.BodyHandlers.discarding());
+        }
+
+        System.out.printf("%s %s, %d 个线程, %d 秒%n", method, uri, threads, seconds);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong errors = new AtomicLong();
+        long[][] latencies = new long[threads][];
+        int[] counts = new int[threads];
+        Thread[] workers = new Thread[threads];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            workers[t] = new Thread(() -> {
+                long[] samples = new long[1 << 16];
+                int n = 0;
+                while (System.nanoTime() < deadline) {
+                    long begin = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    if (n == samples.length) {
+                        samples = Arrays.copyOf(samples, n * 2);
+                    }
+                    samples[n++] = System.nanoTime() - begin;
+                }
+                latencies[id] = samples;
+                counts[id] = n;
+            }, "load-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, pos, counts[t]);
+            pos += counts[t];
+        }
+        Arrays.sort(all);
+        System.out.printf("请求 %d 次, 失败 %d 次, %.0f 请求/秒%n", total, errors.get(), total / elapsed);
+        if (total > 0) {
+            System.out.printf("延迟 p50 %.2f ms, p90 %.2f ms, p99 %.2f ms, 最大 %.2f ms%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), all[total - 1] / 1e6);
+        }
+        if (service != null) {
+            service.stop();
+        }
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+    }
+}
@@ -0,0 +1,208 @@
+package src;
+
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+// 无界面批量抽取：按当前分组规则抽取 N 次，输出到标准输出或文件
+// 用法：java -cp out src.RandomNumberSelector --count 10000000 [--format csv|jsonl|bin] [--output 文件] [--seed 种子]
+// 不创建窗口，也不写历史记录；抽取结果直接编码成字节放进 1MB 缓冲区，满了再整块写入 FileChannel
+//
+// csv：  序号,第一组,第二组,...      每行 1,1-3,6-7,...
+// jsonl：{"seq":1,"groups":[[1,3],[6,7],...]}
+// bin：  24 字节文件头（魔数 RNSB、版本、组数、每组个数、long 抽取次数），之后每个数字一个 short（大端）
+public final class BatchMode {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int BATCH = 4096;
+    private static final int BINARY_MAGIC = 0x524E5342;  // "RNSB"
+    private static final int BINARY_VERSION = 1;
+
+    private BatchMode() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    // 返回进程退出码：0 成功，1 写入失败，2 参数错误
+    public static int run(String[] args) {
+        long count = -1;
+        String format = "csv";
+        String output = "-";
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if ("--help".equals(arg) || "-h".equals(arg)) {
+                usage();
+                return 0;
+            }
+            if (i + 1 >= args.length) {
+                System.err.println("缺少参数值: " + arg);
+                usage();
+                return 2;
+            }
+            String value = args[++i];
+            switch (arg) {
+                case "--count":
+                case "-n":
+                    try {
+                        count = Long.parseLong(value);
+                    } catch (NumberFormatException e) {
+                        count = -1;
+                    }
+                    break;
+                case "--format":
+                case "-f":
+                    format = value;
+                    break;
+                case "--output":
+                case "-o":
+                    output = value;
+                    break;
+                case "--seed":
+                    // 必须在 RandomProvider 初始化之前设置
+                    System.setProperty(RandomProvider.SEED_PROPERTY, value);
+                    break;
+                default:
+                    System.err.println("未知参数: " + arg);
+                    usage();
+                    return 2;
+            }
+        }
+        if (count < 0) {
+            System.err.println("请用 --count 指定非负的抽取次数");
+            usage();
+            return 2;
+        }
+        if (!"csv".equals(format) && !"jsonl".equals(format) && !"bin".equals(format)) {
+            System.err.println("不支持的格式: " + format);
+            usage();
+            return 2;
+        }
+
+        long start = System.nanoTime();
+        try (FileChannel channel = "-".equals(output)
+                ? new FileOutputStream(FileDescriptor.out).getChannel()
+                : FileChannel.open(Paths.get(output), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(channel, new DrawEngine(), format, count);
+        } catch (IOException e) {
+            System.err.println("写入失败: " + e.getMessage());
+            return 1;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.err.printf("已生成 %d 次抽取 (%s, 算法 %s), 耗时 %.2f s, %.0f 万次/秒%n",
+            count, format, RandomProvider.algorithm(), seconds, count / seconds / 1e4);
+        return 0;
+    }
+
+    private static void usage() {
+        System.err.println("用法: --count N [--format csv|jsonl|bin] [--output 文件，默认标准输出] [--seed 种子]");
+    }
+
+    static void write(FileChannel channel, DrawEngine engine, String format, long count) throws IOException {
+        DrawLayout layout = engine.getLayout();
+        int groups = layout.getGroupCount();
+        int pick = layout.getPickSize();
+        int width = engine.getDrawWidth();
+        boolean binary = "bin".equals(format);
+        boolean json = "jsonl".equals(format);
+        // 一行最长：序号 20 位 + 每个数字 6 位加分隔符，再留出 JSON 的括号和键名
+        int maxLine = 64 + width * 8 + groups * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, maxLine * 2));
+        int[] draws = new int[BATCH * width];
+
+        if (binary) {
+            buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION).putInt(groups).putInt(pick).putLong(count);
+        } else if (!json) {
+            buffer.put(("序号," + String.join(",", groupNames(groups)) + "\n").getBytes(StandardCharsets.UTF_8));
+        }
+
+        long seq = 0;
+        while (seq < count) {
+            int n = (int) Math.min(BATCH, count - seq);
+            engine.drawBatch(draws, 0, n);
+            for (int i = 0; i < n; i++) {
+                if (buffer.remaining() < maxLine) {
+                    drain(channel, buffer);
+                }
+                int base = i * width;
+                seq++;
+                if (binary) {
+                    for (int k = 0; k < width; k++) {
+                        buffer.putShort((short) draws[base + k]);
+                    }
+                } else if (json) {
+                    putAscii(buffer, "{\"seq\":");
+                    putNumber(buffer, seq);
+                    putAscii(buffer, ",\"groups\":[");
+                    for (int g = 0; g < groups; g++) {
+                        if (g > 0) buffer.put((byte) ',');
+                        buffer.put((byte) '[');
+                        for (int k = 0; k < pick; k++) {
+                            if (k > 0) buffer.put((byte) ',');
+                            putNumber(buffer, draws[base + g * pick + k]);
+                        }
+                        buffer.put((byte) ']');
+                    }
+                    putAscii(buffer, "]}\n");
+                } else {
+                    putNumber(buffer, seq);
+                    for (int g = 0; g < groups; g++) {
+                        buffer.put((byte) ',');
+                        for (int k = 0; k < pick; k++) {
+                            if (k > 0) buffer.put((byte) '-');
+                            putNumber(buffer, draws[base + g * pick + k]);
+                        }
+                    }
+                    buffer.put((byte) '\n');
+                }
+            }
+        }
+        drain(channel, buffer);
+    }
+
+    private static String[] groupNames(int groups) {
+        String[] names = new String[groups];
+        for (int g = 0; g < groups; g++) {
+            names[g] = DrawLayout.groupName(g);
+        }
+        return names;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void putAscii(ByteBuffer buffer, String text) {
+        for (int i = 0; i < text.length(); i++) {
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+    // 非负整数直接写成十进制 ASCII，不经过 String
+    private static void putNumber(ByteBuffer buffer, long value) {
+        if (value < 10) {
+            buffer.put((byte) ('0' + value));
+            return;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int pos = end - 1; value > 0; pos--) {
+            buffer.put(pos, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+}
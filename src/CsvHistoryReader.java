@@ -0,0 +1,228 @@
+package src;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+// 逐行读取历史记录 CSV 的流式解析器，直接在 UTF-8 字节上工作
+// 整个文件复用同一个读缓冲区和字段位置数组，数字和日期直接从字节解析，
+// 只有非空的姓名、卡号才会解码成 String
+// 用法：while (reader.next()) { reader.record(0, layout) ... }
+final class CsvHistoryReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private byte[] buf = new byte[BUFFER_SIZE];
+    private ByteBuffer wrapper = ByteBuffer.wrap(buf);
+    private int start;   // 未处理数据的起点
+    private int limit;   // 缓冲区中有效数据的终点
+    private boolean eof;
+
+    // 当前行各字段在 buf 中的范围 [fieldStart, fieldEnd)
+    private int[] fieldStart = new int[32];
+    private int[] fieldEnd = new int[32];
+    private int fieldCount;
+    private int lineStart;
+    private int lineEnd;
+
+    CsvHistoryReader(File file) throws IOException {
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        fill();
+        // 跳过 UTF-8 BOM
+        if (limit - start >= 3 && (buf[0] & 0xFF) == 0xEF && (buf[1] & 0xFF) == 0xBB && (buf[2] & 0xFF) == 0xBF) {
+            start = 3;
+        }
+    }
+
+    // 读到下一行并切分字段，文件结束时返回 false
+    boolean next() throws IOException {
+        int newline;
+        while ((newline = indexOf((byte) '\n', start, limit)) < 0) {
+            if (eof) {
+                if (start >= limit) {
+                    return false;
+                }
+                newline = limit;  // 最后一行没有换行符
+                break;
+            }
+            fill();
+        }
+        lineStart = start;
+        lineEnd = newline > start && buf[newline - 1] == '\r' ? newline - 1 : newline;
+        start = newline < limit ? newline + 1 : limit;
+        split();
+        return true;
+    }
+
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    // 字段原样解码为字符串，空字段返回 ""
+    String stringField(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        return from == to ? "" : new String(buf, from, to - from, StandardCharsets.UTF_8);
+    }
+
+    int intField(int field) {
+        return parseInt(fieldStart[field], fieldEnd[field]);
+    }
+
+    // 当前整行，仅用于错误提示
+    String line() {
+        return new String(buf, lineStart, lineEnd - lineStart, StandardCharsets.UTF_8);
+    }
+
+    // 从第 offset 个字段开始解析一条记录：日期,时间,然后每组 “数字-数字,姓名,卡号”
+    // 格式不对、每组数字个数不是 pickSize（如分组规则已更改），或数字超出该组范围、未按升序排列、有重复时
+    // 抛出 NumberFormatException 或 DateTimeException
+    NumberRecord record(int offset, DrawLayout layout) {
+        int groupCount = layout.getGroupCount();
+        int pickSize = layout.getPickSize();
+        if (fieldCount < offset + 2 + groupCount * 3) {
+            throw new NumberFormatException("列数不足");
+        }
+        int[][] numbers = new int[groupCount][];
+        for (int g = 0; g < groupCount; g++) {
+            numbers[g] = parseGroup(offset + 2 + g * 3);
+            if (numbers[g].length != pickSize) {
+                throw new NumberFormatException("每组应为 " + pickSize + " 个数字");
+            }
+            // 统计和组合下标都假定组内数字在范围内且严格递增
+            if (layout.combinationIndex(g, numbers[g]) < 0) {
+                throw new NumberFormatException(DrawLayout.groupName(g) + "应为 " + layout.firstValue(g) + " 到 "
+                    + (layout.firstValue(g) + layout.getGroupSize() - 1) + " 之间升序排列的不同数字");
+            }
+        }
+        NumberRecord record = new NumberRecord(numbers, parseDateTime(offset));
+        for (int g = 0; g < groupCount; g++) {
+            int nameField = offset + 3 + g * 3;
+            int cardField = nameField + 1;
+            if (fieldStart[nameField] != fieldEnd[nameField] || fieldStart[cardField] != fieldEnd[cardField]) {
+                record.addRegistration(g, stringField(nameField), stringField(cardField));
+            }
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // 把未处理的数据移到缓冲区开头，再从文件读入更多；一行装不下时扩大缓冲区
+    private void fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, limit - start);
+            limit -= start;
+            start = 0;
+        }
+        if (limit == buf.length) {
+            byte[] larger = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, larger, 0, limit);
+            buf = larger;
+            wrapper = ByteBuffer.wrap(buf);
+        }
+        wrapper.limit(buf.length).position(limit);
+        int read = channel.read(wrapper);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private int indexOf(byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void split() {
+        fieldCount = 0;
+        int from = lineStart;
+        for (int i = lineStart; i <= lineEnd; i++) {
+            if (i == lineEnd || buf[i] == ',') {
+                if (fieldCount == fieldStart.length) {
+                    fieldStart = Arrays.copyOf(fieldStart, fieldCount * 2);
+                    fieldEnd = Arrays.copyOf(fieldEnd, fieldCount * 2);
+                }
+                fieldStart[fieldCount] = from;
+                fieldEnd[fieldCount] = i;
+                fieldCount++;
+                from = i + 1;
+            }
+        }
+    }
+
+    // 解析 “1-2” 或 “3 - 4 - 5” 形式的一组数字
+    private int[] parseGroup(int field) {
+        int from = fieldStart[field];
+        int to = fieldEnd[field];
+        int count = 1;
+        for (int i = from; i < to; i++) {
+            if (buf[i] == '-') {
+                count++;
+            }
+        }
+        int[] values = new int[count];
+        int k = 0;
+        int partStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i == to || buf[i] == '-') {
+                values[k++] = parseInt(partStart, i);
+                partStart = i + 1;
+            }
+        }
+        return values;
+    }
+
+    // 解析 “yyyy-MM-dd” 和 “HH:mm:ss” 两个字段
+    private LocalDateTime parseDateTime(int offset) {
+        int d = fieldStart[offset];
+        int dEnd = fieldEnd[offset];
+        int t = fieldStart[offset + 1];
+        int tEnd = fieldEnd[offset + 1];
+        while (d < dEnd && buf[d] == ' ') d++;
+        while (t < tEnd && buf[t] == ' ') t++;
+        if (dEnd - d < 10 || tEnd - t < 8 || buf[d + 4] != '-' || buf[d + 7] != '-'
+                || buf[t + 2] != ':' || buf[t + 5] != ':') {
+            throw new NumberFormatException("日期格式错误");
+        }
+        return LocalDateTime.of(
+            parseInt(d, d + 4), parseInt(d + 5, d + 7), parseInt(d + 8, d + 10),
+            parseInt(t, t + 2), parseInt(t + 3, t + 5), parseInt(t + 6, t + 8));
+    }
+
+    // 解析 [from, to) 中的十进制整数，忽略两端空格
+    private int parseInt(int from, int to) {
+        while (from < to && buf[from] == ' ') from++;
+        while (to > from && buf[to - 1] == ' ') to--;
+        if (from == to) {
+            throw new NumberFormatException("空数字");
+        }
+        boolean negative = buf[from] == '-';
+        if (negative) {
+            from++;
+        }
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Integer.MAX_VALUE - digit) / 10) {
+                throw new NumberFormatException("无效数字");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+}
@@ -1,99 +1,528 @@
 package src;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 
 public class DataManager {
+    // 历史记录保存在内存映射的二进制文件中，CSV 只用于导出和旧数据导入
+    private static final String RECORD_FILE = "data/history.bin";
+    private static final String STRING_FILE = "data/history.strings";
+    // 旧版本的 CSV 和追加日志，首次启动时导入二进制存储
     private static final String DATA_FILE = "data/history.csv";
-    private static List<NumberRecord> history = new ArrayList<>();
-    
-    static {
+    private static final String JOURNAL_FILE = "data/history.journal";
+    private static final String ROTATED_JOURNAL_FILE = "data/history.journal.old";
+
+    private static HistoryLog history = new HistoryLog();  // 只在 lock 内修改，其他线程通过 getHistory() 的快照读取
+    private static final Object lock = new Object();
+    private static HistoryWriter writer;  // 后台写入线程，界面线程不做磁盘 I/O
+    private static CompletableFuture<Void> loaded;  // 后台加载完成时结束，init() 之前为 null
+    private static boolean merged;  // 已保存的记录已放入 history，新记录可以直接分配序号
+    private static String persistenceError;  // 加载完成后仍无法写入磁盘时的提示，界面据此告知用户
+    private static String storeError;  // 无法打开或替换历史记录文件的原因，只由加载线程写入
+    private static HistoryIndex index = new HistoryIndex();
+    private static volatile DrawStatistics statistics = new DrawStatistics(DrawLayout.current());  // 读取时不需要 lock
+
+    // 在后台线程开始加载历史记录，可重复调用，返回同一个 future
+    // 加载完成之前 addRecord 的记录先放在内存里，加载完成后排在已有记录之后写入
+    public static CompletableFuture<Void> init() {
+        synchronized (lock) {
+            if (loaded == null) {
+                CompletableFuture<Void> future = new CompletableFuture<>();
+                loaded = future;
+                Thread loader = new Thread(() -> {
+                    try {
+                        load();
+                    } catch (RuntimeException e) {
+                        System.out.println("加载历史记录失败: " + e.getMessage());
+                        loadEmpty();
+                    } finally {
+                        future.complete(null);  // 即使加载线程出错，等待加载的调用方也不会一直等下去
+                    }
+                }, "history-loader");
+                loader.setDaemon(true);
+                loader.start();
+            }
+            return loaded;
+        }
+    }
+
+    public static boolean isReady() {
+        synchronized (lock) {
+            return loaded != null && loaded.isDone();
+        }
+    }
+
+    // 同步加载，等待后台加载完成
+    public static void loadHistory() {
+        init().join();
+    }
+
+    private static void load() {
+        JfrEvents.LoadHistory event = new JfrEvents.LoadHistory();
+        event.begin();
         // 确保数据目录存在
         File dataDir = new File("data");
         if (!dataDir.exists()) {
             dataDir.mkdir();
         }
-        
-        // 加载历史数据
-        loadHistory();
+
+        // 打开、读取和建索引都不持有锁，界面线程此时仍可以 addRecord
+        MappedHistoryStore store = openStore();
+        List<NumberRecord> records = new ArrayList<>();
+        if (store != null) {
+            try {
+                if (store.size() == 0) {
+                    event.importedLegacy = importLegacyHistory(store);
+                }
+                records = store.readAll();
+                event.bytes = store.dataSize();
+            } catch (IOException | RuntimeException e) {
+                // 文件头正常但内容损坏：先关闭，旧文件改名保留后另起新文件，本次运行的抽取照常保存
+                System.out.println("读取历史记录失败: " + e.getMessage());
+                closeQuietly(store);
+                store = replaceStore();
+                records = new ArrayList<>();
+            }
+        }
+        merge(store, records, HistoryIndex.build(records), DrawStatistics.build(records, DrawLayout.current()));
+        event.records = records.size();
+        event.commit();
     }
-    
-    public static void loadHistory() {
-        File file = new File(DATA_FILE);
+
+    // load 意外失败时的退路：不带已保存的记录，但之后的抽取仍写入新文件，不会只留在内存里
+    private static void loadEmpty() {
+        synchronized (lock) {
+            if (merged) {
+                return;
+            }
+        }
+        List<NumberRecord> records = new ArrayList<>();
+        merge(replaceStore(), records, HistoryIndex.build(records), DrawStatistics.build(records, DrawLayout.current()));
+    }
+
+    // 把已保存的记录放到加载期间新增的记录前面，开始后台写入；store 为 null 时记下提示
+    private static void merge(MappedHistoryStore store, List<NumberRecord> records,
+                              HistoryIndex loadedIndex, DrawStatistics loadedStatistics) {
+        synchronized (lock) {
+            List<NumberRecord> early = history.snapshot();
+            history = new HistoryLog();  // 换新列表，已发出的快照保持不变
+            history.addAll(records);
+            index = loadedIndex;
+            statistics = loadedStatistics;
+            if (store != null) {
+                writer = new HistoryWriter(store);
+            } else {
+                persistenceError = "无法使用 data 目录下的历史记录文件（" + storeError + "），本次运行的抽取结果不会保存到磁盘。";
+            }
+            merged = true;
+            for (NumberRecord record : early) {
+                append(record);
+            }
+        }
+    }
+
+    private static void closeQuietly(MappedHistoryStore store) {
+        try {
+            store.close();
+        } catch (IOException e) {
+            System.out.println("关闭历史记录失败: " + e.getMessage());
+        }
+    }
+
+    private static MappedHistoryStore openStore() {
+        try {
+            return MappedHistoryStore.open(new File(RECORD_FILE), new File(STRING_FILE), DrawLayout.current());
+        } catch (MappedHistoryStore.LockedException e) {
+            // 文件正被另一个进程写入，不能改名，也不能另起一份下次读不到的文件
+            System.out.println("打开历史记录失败: " + e.getMessage());
+            storeError = e.getMessage();
+            return null;
+        } catch (IOException e) {
+            System.out.println("打开历史记录失败: " + e.getMessage());
+        }
+        return replaceStore();
+    }
+
+    // 文件损坏或分组规则已更改：旧文件改名保留，另起新文件
+    // 旧文件无法改名（如 Windows 上仍被映射或被其他程序占用）或新文件无法创建时返回 null，
+    // 不写入下次启动读不到的文件，由界面提示用户
+    private static MappedHistoryStore replaceStore() {
+        DrawLayout layout = DrawLayout.current();
+        File recordFile = new File(RECORD_FILE);
+        File stringFile = new File(STRING_FILE);
+        String stamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMddHHmmss"));
+        File recordBackup = new File(RECORD_FILE + "." + stamp + ".bak");
+        File stringBackup = new File(STRING_FILE + "." + stamp + ".bak");
+        if (recordFile.exists()) {
+            if (!recordFile.renameTo(recordBackup)) {
+                storeError = recordFile + " 无法改名，请关闭程序后手动移走";
+                System.out.println("旧的历史记录" + storeError);
+                return null;
+            }
+            if (stringFile.exists() && !stringFile.renameTo(stringBackup)) {
+                recordBackup.renameTo(recordFile);  // 两个文件要么一起改名，要么都不动
+                storeError = stringFile + " 无法改名，请关闭程序后手动移走";
+                System.out.println("旧的历史记录" + storeError);
+                return null;
+            }
+            System.out.println("旧的历史记录已另存为 " + recordBackup);
+        }
+        try {
+            return MappedHistoryStore.open(recordFile, stringFile, layout);
+        } catch (IOException e) {
+            System.out.println("创建历史记录失败: " + e.getMessage());
+            storeError = e.getMessage();
+            return null;
+        }
+    }
+
+    // 把旧版本的 CSV 和未合并的日志导入二进制存储，完成后把 CSV 改名备份；返回是否导入了旧数据
+    private static boolean importLegacyHistory(MappedHistoryStore store) {
+        File csv = new File(DATA_FILE);
+        File journal = new File(JOURNAL_FILE);
+        File rotated = new File(ROTATED_JOURNAL_FILE);
+        if (!csv.exists() && !journal.exists() && !rotated.exists()) {
+            return false;
+        }
+        List<NumberRecord> records = readHistory(csv);
+        replayJournal(rotated, records);
+        replayJournal(journal, records);
+        if (records.isEmpty()) {
+            // 没有可导入的记录（如旧数据的分组规则与当前配置不同）：旧文件保持不动，改回配置后还能导入
+            return false;
+        }
+        // 逐条写入，一条失败只跳过这一条，序号保持连续
+        int imported = 0;
+        for (NumberRecord record : records) {
+            record.setSequence(imported);
+            try {
+                store.write(record);
+                imported++;
+            } catch (IOException | RuntimeException e) {
+                System.out.println("跳过无法导入的历史记录: " + formatRecord(record) + " (" + e.getMessage() + ")");
+            }
+        }
+        try {
+            store.force();
+        } catch (RuntimeException e) {
+            System.out.println("导入旧历史记录失败: " + e.getMessage());
+            return false;
+        }
+        if (imported == 0) {
+            return false;
+        }
+        csv.renameTo(new File(DATA_FILE + ".bak"));
+        journal.delete();
+        rotated.delete();
+        System.out.println("已导入 " + imported + " 条旧历史记录");
+        return true;
+    }
+
+    // 读取指定 CSV 文件（UTF-8，可带 BOM）中的全部记录
+    // 逐字节流式解析，数字和日期不经过中间字符串
+    static List<NumberRecord> readHistory(File file) {
+        List<NumberRecord> records = new ArrayList<>();
         if (!file.exists()) {
-            return;
+            return records;
         }
-        
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            String line;
+        DrawLayout layout = DrawLayout.current();
+        int columnCount = layout.getColumnCount();
+
+        int skipped = 0;
+        try (CsvHistoryReader reader = new CsvHistoryReader(file)) {
             boolean isFirstLine = true;
-            while ((line = reader.readLine()) != null) {
+            while (reader.next()) {
                 if (isFirstLine) {
                     isFirstLine = false;
                     continue; // 跳过表头
                 }
-                String[] parts = line.split(",");
-                if (parts.length >= 17) { // 2 + (3 * 5) = 17列
-                    int[][] numbers = new int[5][2];
-                    for (int i = 0; i < 5; i++) {
-                        String[] numParts = parts[i * 3 + 2].split("-");
-                        numbers[i][0] = Integer.parseInt(numParts[0].trim());
-                        numbers[i][1] = Integer.parseInt(numParts[1].trim());
-                    }
-                    NumberRecord record = new NumberRecord(numbers);
-                    for (int i = 0; i < 5; i++) {
-                        record.addRegistration(i, parts[i * 3 + 3], parts[i * 3 + 4]);
+                if (reader.fieldCount() >= columnCount) { // 2 + (3 * 组数) 列
+                    try {
+                        records.add(reader.record(0, layout));
+                    } catch (RuntimeException e) {
+                        // 分组规则更改后可能整个文件都不匹配，只显示第一行
+                        if (skipped++ == 0) {
+                            System.out.println("跳过无效的历史记录: " + reader.line() + " (" + e.getMessage() + ")");
+                        }
                     }
-                    history.add(record);
                 }
             }
         } catch (IOException e) {
             System.out.println("加载历史记录失败: " + e.getMessage());
         }
+        if (skipped > 1) {
+            System.out.println(file + " 中共跳过 " + skipped + " 行无效的历史记录");
+        }
+        return records;
+    }
+
+    // 旧版本的日志每行为 “A,序号,记录” 或 “U,序号,记录”
+    // 新增按序号去重，补登直接覆盖，因此同一条日志重放多次结果不变
+    private static void replayJournal(File file, List<NumberRecord> records) {
+        if (!file.exists()) {
+            return;
+        }
+        DrawLayout layout = DrawLayout.current();
+        int columnCount = layout.getColumnCount();
+        int skipped = 0;
+        try (CsvHistoryReader reader = new CsvHistoryReader(file)) {
+            while (reader.next()) {
+                if (reader.fieldCount() < columnCount + 2) {
+                    continue; // 写了一半的行
+                }
+                try {
+                    String type = reader.stringField(0);
+                    int seq = reader.intField(1);
+                    NumberRecord parsed = reader.record(2, layout);
+                    if ("A".equals(type) && seq >= records.size()) {
+                        records.add(parsed);
+                    } else if ("U".equals(type) && seq >= 0 && seq < records.size()) {
+                        NumberRecord record = records.get(seq);
+                        for (int i = 0; i < parsed.getNumbers().length; i++) {
+                            record.addRegistration(i, parsed.getName(i), parsed.getCardId(i));
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    if (skipped++ == 0) {
+                        System.out.println("跳过无效的日志记录: " + reader.line() + " (" + e.getMessage() + ")");
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("读取历史日志失败: " + e.getMessage());
+        }
+        if (skipped > 1) {
+            System.out.println(file + " 中共跳过 " + skipped + " 行无效的日志记录");
+        }
     }
-    
+
+    // 等待此前的新增和补登全部写入，并刷到磁盘
     public static void saveHistory() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter(DATA_FILE))) {
+        JfrEvents.SaveHistory event = new JfrEvents.SaveHistory();
+        event.begin();
+        flush();
+        if (event.shouldCommit()) {
+            HistoryWriter current;
+            synchronized (lock) {
+                event.records = history.size();
+                current = writer;
+            }
+            event.bytes = current != null ? current.getStoredBytes() : 0;
+            event.commit();
+        }
+    }
+
+    // 把记录完整写入指定 CSV 文件（UTF-8，覆盖原内容），用于导出
+    static void writeHistory(File file, List<NumberRecord> records) throws IOException {
+        try (PrintWriter writer = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)))) {
             // 写入表头
-            writer.println("日期,时间," +
-                "第一组,姓名,卡号," +
-                "第二组,姓名,卡号," +
-                "第三组,姓名,卡号," +
-                "第四组,姓名,卡号," +
-                "第五组,姓名,卡号");
-            
+            writer.println(DrawLayout.current().csvHeader());
+
             // 写入数据
-            for (NumberRecord record : history) {
-                StringBuilder line = new StringBuilder();
-                line.append(record.getDate()).append(",");
-                line.append(record.getTime()).append(",");
-                int[][] numbers = record.getNumbers();
-                for (int i = 0; i < 5; i++) {
-                    line.append(numbers[i][0]).append("-").append(numbers[i][1]).append(",");
-                    line.append(record.getName(i) != null ? record.getName(i) : "").append(",");
-                    line.append(record.getCardId(i) != null ? record.getCardId(i) : "");
-                    if (i < 4) line.append(",");
-                }
-                writer.println(line);
+            for (NumberRecord record : records) {
+                writer.println(formatRecord(record));
             }
-        } catch (IOException e) {
-            System.out.println("保存历史记录失败: " + e.getMessage());
+            if (writer.checkError()) {
+                throw new IOException("写入 " + file + " 失败");
+            }
+        }
+    }
+
+    static StringBuilder formatRecord(NumberRecord record) {
+        StringBuilder line = new StringBuilder();
+        line.append(record.getDate()).append(",");
+        line.append(record.getTime()).append(",");
+        appendCsvGroups(line, record);
+        return line;
+    }
+
+    // 按 CSV 格式追加各组数字和登记信息（不含日期、时间和换行）
+    static void appendCsvGroups(StringBuilder line, NumberRecord record) {
+        int[][] numbers = record.getNumbers();
+        for (int i = 0; i < numbers.length; i++) {
+            for (int k = 0; k < numbers[i].length; k++) {
+                if (k > 0) line.append("-");
+                line.append(numbers[i][k]);
+            }
+            line.append(",");
+            line.append(record.getName(i) != null ? record.getName(i) : "").append(",");
+            line.append(record.getCardId(i) != null ? record.getCardId(i) : "");
+            if (i < numbers.length - 1) line.append(",");
         }
     }
-    
+
+    // 当前全部记录的只读快照，可在任意线程遍历；之后新增的记录不在其中，需要时重新获取
+    // 加载完成（isReady）之前只包含本次运行新增的记录
     public static List<NumberRecord> getHistory() {
-        return history;
+        synchronized (lock) {
+            return history.snapshot();
+        }
     }
-    
+
+    // 当前记录条数，用于判断快照是否过时
+    public static int getHistorySize() {
+        synchronized (lock) {
+            return history.size();
+        }
+    }
+
     public static void addRecord(NumberRecord record) {
+        synchronized (lock) {
+            if (merged) {
+                append(record);
+            } else {
+                history.add(record); // 加载完成后再分配序号
+            }
+        }
+    }
+
+    // 调用方持有 lock
+    private static void append(NumberRecord record) {
+        record.setSequence(history.size());
         history.add(record);
-        saveHistory(); // 每次添加记录后自动保存
+        index.add(record);
+        statistics.record(record);
+        if (writer != null) {
+            writer.append(record); // 只入队，由后台线程写入下一个槽位
+        }
     }
-    
+
     public static void updateRecord(NumberRecord record) {
-        saveHistory(); // 每次更新记录后自动保存
+        synchronized (lock) {
+            if (!merged) {
+                return; // 加载完成后新增时会写入完整内容
+            }
+            index.update(record);
+            if (writer != null) {
+                writer.update(record);
+            }
+        }
+    }
+
+    // 按姓名、卡号精确查找，结果按抽取顺序排列；加载完成之前返回空列表
+    public static List<NumberRecord> findByName(String name) {
+        synchronized (lock) {
+            return toRecords(index.findByName(name, history));
+        }
+    }
+
+    public static List<NumberRecord> findByCardId(String cardId) {
+        synchronized (lock) {
+            return toRecords(index.findByCardId(cardId, history));
+        }
+    }
+
+    // 抽取日期在 [from, to] 之间的记录
+    public static List<NumberRecord> findByDate(LocalDate from, LocalDate to) {
+        synchronized (lock) {
+            return toRecords(index.findByDate(from, to));
+        }
+    }
+
+    // 姓名或卡号以 prefix 开头（不区分大小写）的记录
+    public static List<NumberRecord> findByPrefix(String prefix) {
+        synchronized (lock) {
+            return toRecords(index.findByPrefix(prefix, history));
+        }
+    }
+
+    // 最近的 limit 条记录，按抽取顺序排列
+    public static List<NumberRecord> recentRecords(int limit) {
+        synchronized (lock) {
+            int from = Math.max(0, history.size() - limit);
+            return new ArrayList<>(history.subList(from, history.size()));
+        }
+    }
+
+    // 按序号补登，界面和 HTTP 线程都通过这里在锁内修改记录，返回补登后的副本
+    // 序号不存在或历史记录尚未加载完成时返回 null
+    public static NumberRecord register(int sequence, int groupIndex, String name, String cardId) {
+        synchronized (lock) {
+            if (!merged || sequence < 0 || sequence >= history.size()) {
+                return null;
+            }
+            NumberRecord record = history.get(sequence);
+            record.addRegistration(groupIndex, name, cardId);
+            updateRecord(record);
+            return record.copy();
+        }
+    }
+
+    // 在锁内复制记录，其他线程读取副本，不会读到补登了一半的登记信息
+    static NumberRecord copyOf(NumberRecord record) {
+        synchronized (lock) {
+            return record.copy();
+        }
+    }
+
+    static List<NumberRecord> copyOf(List<NumberRecord> records) {
+        synchronized (lock) {
+            List<NumberRecord> copies = new ArrayList<>(records.size());
+            for (NumberRecord record : records) {
+                copies.add(record.copy());
+            }
+            return copies;
+        }
+    }
+
+    // 姓名或卡号以 prefix 开头的记录序号（即在 getHistory() 中的下标），用于历史记录搜索
+    // 最多返回 limit 条，界面逐字搜索时锁的持有时间与记录总数无关
+    static int[] searchByPrefix(String prefix, int limit) {
+        synchronized (lock) {
+            return index.findByPrefix(prefix, history, limit);
+        }
+    }
+
+    private static List<NumberRecord> toRecords(int[] sequences) {
+        List<NumberRecord> result = new ArrayList<>(sequences.length);
+        for (int seq : sequences) {
+            result.add(history.get(seq));
+        }
+        return result;
+    }
+
+    // 等待此前的新增和补登全部写入磁盘
+    public static void flush() {
+        HistoryWriter current;
+        synchronized (lock) {
+            current = writer;
+        }
+        if (current != null) {
+            try {
+                current.flush().join();
+            } catch (CompletionException e) {
+                System.out.println("保存历史记录失败: " + e.getCause().getMessage());
+            }
+        }
+    }
+
+    // 抽取统计的一致快照，不阻塞 addRecord
+    // 加载完成之前为空：本次运行在加载期间的抽取和已保存的记录一起，在加载完成时才计入
+    public static StatisticsSnapshot getStatistics() {
+        return statistics.snapshot();
+    }
+
+    // 历史记录无法写入磁盘时的提示（包括运行中写入线程停止或积压过多），正常时为 null
+    public static String getPersistenceError() {
+        synchronized (lock) {
+            if (persistenceError == null && writer != null) {
+                return writer.getError();
+            }
+            return persistenceError;
+        }
+    }
+
+    public static PersistenceStats getPersistenceStats() {
+        synchronized (lock) {
+            return writer != null ? writer.getStats() : null;
+        }
     }
-} 
\ No newline at end of file
+}
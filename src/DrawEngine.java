@@ -0,0 +1,107 @@
+package src;
+
+import java.nio.IntBuffer;
+import java.util.random.RandomGenerator;
+
+// 与界面无关的抽取引擎，可在后台批量生成结果
+// 每次抽取按组顺序输出 drawWidth = 组数 * 每组选出个数 个 int：第一组的数、第二组的数……
+// 引擎本身不是线程安全的，并发使用时每个线程应持有自己的实例
+public class DrawEngine {
+    private final DrawLayout layout;
+    private final RandomGenerator random;
+    private final int groupCount;
+    private final int pickSize;
+    private final int combinationCount;
+    private final int drawWidth;
+    private final int[] table;    // DrawLayout 预先展开的组合数值表
+    private final int[] scratch;  // 写入非数组缓冲区时复用
+
+    // 使用当前分组规则和 RandomProvider 新拆分出的独立流
+    public DrawEngine() {
+        this(DrawLayout.current(), RandomProvider.newGenerator());
+    }
+
+    public DrawEngine(RandomGenerator random) {
+        this(DrawLayout.current(), random);
+    }
+
+    public DrawEngine(DrawLayout layout, RandomGenerator random) {
+        this.layout = layout;
+        this.random = random;
+        this.groupCount = layout.getGroupCount();
+        this.pickSize = layout.getPickSize();
+        this.combinationCount = layout.getCombinationCount();
+        this.drawWidth = layout.getDrawWidth();
+        this.table = layout.valueTable();
+        this.scratch = new int[drawWidth];
+    }
+
+    public DrawLayout getLayout() {
+        return layout;
+    }
+
+    // 每次抽取占用的 int 个数
+    public int getDrawWidth() {
+        return drawWidth;
+    }
+
+    // 抽取一次，写入 out[offset, offset + drawWidth)
+    public void drawInto(int[] out, int offset) {
+        for (int g = 0; g < groupCount; g++) {
+            int combination = random.nextInt(combinationCount);  // 每组恰好一次有界随机调用
+            int from = (g * combinationCount + combination) * pickSize;
+            for (int k = 0; k < pickSize; k++) {
+                out[offset++] = table[from + k];
+            }
+        }
+    }
+
+    // 抽取一次，从 out 的当前位置开始写入
+    public void drawInto(IntBuffer out) {
+        drawInto(scratch, 0);
+        out.put(scratch);
+    }
+
+    // 连续抽取 count 次，写入 out[offset, offset + count * drawWidth)
+    public void drawBatch(int[] out, int offset, int count) {
+        if (count < 0 || offset < 0 || out.length - offset < (long) count * drawWidth) {
+            throw new IndexOutOfBoundsException("批量抽取超出数组范围: offset=" + offset + ", count=" + count);
+        }
+        for (int i = 0; i < count; i++) {
+            drawInto(out, offset + i * drawWidth);
+        }
+    }
+
+    public int[] drawBatch(int count) {
+        int[] out = new int[count * drawWidth];
+        drawBatch(out, 0, count);
+        return out;
+    }
+
+    // 连续抽取 count 次，写入 out 的当前位置
+    public void drawBatch(IntBuffer out, int count) {
+        if (count < 0 || out.remaining() < (long) count * drawWidth) {
+            throw new IndexOutOfBoundsException("批量抽取超出缓冲区范围: count=" + count);
+        }
+        if (out.hasArray()) {
+            // 堆缓冲区直接写底层数组，避免逐个 put
+            int position = out.position();
+            drawBatch(out.array(), out.arrayOffset() + position, count);
+            out.position(position + count * drawWidth);
+        } else {
+            for (int i = 0; i < count; i++) {
+                drawInto(out);
+            }
+        }
+    }
+
+    // 抽取一次并按组返回，供界面和历史记录使用
+    public int[][] draw() {
+        drawInto(scratch, 0);
+        int[][] numbers = new int[groupCount][pickSize];
+        for (int g = 0; g < groupCount; g++) {
+            System.arraycopy(scratch, g * pickSize, numbers[g], 0, pickSize);
+        }
+        return numbers;
+    }
+}
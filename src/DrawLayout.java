@@ -0,0 +1,208 @@
+package src;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+// 分组规则：组数、每组数字个数、每组选出的个数
+// 默认 5 组，每组 4 个数（1-4, 5-8, ..., 17-20）选 2 个
+// 启动时从 layout.properties（groups / groupSize / pick）读取一次，系统属性 rns.layout.* 可覆盖
+// 创建时把每组所有组合预先展开成数值表，抽取时只需一次有界随机调用加查表
+public final class DrawLayout {
+    public static final String LAYOUT_FILE = "layout.properties";
+    private static final int MAX_COMBINATIONS = 1 << 16;  // 单组组合数上限，避免表过大
+    private static final String[] CHINESE_NUMERALS = {"一", "二", "三", "四", "五", "六", "七", "八", "九", "十"};
+
+    private static DrawLayout current;
+
+    private final int groupCount;
+    private final int groupSize;
+    private final int pickSize;
+    private final int combinationCount;
+    private final int drawWidth;
+    // values[(g * combinationCount + c) * pickSize + k]：第 g 组第 c 个组合的第 k 个数
+    private final int[] values;
+    // rankTable[j * pickSize + k]：第 k 位取偏移 j 之前，字典序上被跳过的组合数，用于由数字反查组合序号
+    private final int[] rankTable;
+
+    public DrawLayout(int groupCount, int groupSize, int pickSize) {
+        if (groupCount < 1 || groupSize < 1 || pickSize < 1 || pickSize > groupSize) {
+            throw new IllegalArgumentException("无效的分组规则: " + groupCount + " 组, 每组 " + groupSize + " 选 " + pickSize);
+        }
+        long combinations = binomial(groupSize, pickSize);
+        if (combinations > MAX_COMBINATIONS) {
+            throw new IllegalArgumentException("每组组合数过多: " + combinations);
+        }
+        this.groupCount = groupCount;
+        this.groupSize = groupSize;
+        this.pickSize = pickSize;
+        this.combinationCount = (int) combinations;
+        this.drawWidth = groupCount * pickSize;
+        this.values = new int[groupCount * combinationCount * pickSize];
+        this.rankTable = new int[groupSize * pickSize];
+        for (int j = 0; j < groupSize; j++) {
+            for (int k = 0; k < pickSize; k++) {
+                rankTable[j * pickSize + k] = (int) binomial(groupSize - 1 - j, pickSize - 1 - k);
+            }
+        }
+
+        // 按字典序列出组内偏移的所有组合，再按组加上起始值
+        int[] combo = new int[pickSize];
+        for (int k = 0; k < pickSize; k++) {
+            combo[k] = k;
+        }
+        for (int c = 0; c < combinationCount; c++) {
+            for (int g = 0; g < groupCount; g++) {
+                int base = (g * combinationCount + c) * pickSize;
+                for (int k = 0; k < pickSize; k++) {
+                    values[base + k] = firstValue(g) + combo[k];
+                }
+            }
+            int k = pickSize - 1;
+            while (k >= 0 && combo[k] == groupSize - pickSize + k) {
+                k--;
+            }
+            if (k >= 0) {
+                combo[k]++;
+                for (int j = k + 1; j < pickSize; j++) {
+                    combo[j] = combo[j - 1] + 1;
+                }
+            }
+        }
+    }
+
+    public static synchronized DrawLayout current() {
+        if (current == null) {
+            current = load();
+        }
+        return current;
+    }
+
+    private static DrawLayout load() {
+        Properties props = new Properties();
+        File file = new File(LAYOUT_FILE);
+        if (file.exists()) {
+            try (InputStream in = new FileInputStream(file)) {
+                props.load(in);
+            } catch (IOException e) {
+                System.out.println("读取分组配置失败: " + e.getMessage());
+            }
+        }
+        try {
+            int groups = Integer.parseInt(setting(props, "groups", "5"));
+            int groupSize = Integer.parseInt(setting(props, "groupSize", "4"));
+            int pick = Integer.parseInt(setting(props, "pick", "2"));
+            return new DrawLayout(groups, groupSize, pick);
+        } catch (IllegalArgumentException e) {
+            System.out.println("分组配置无效，使用默认规则: " + e.getMessage());
+            return new DrawLayout(5, 4, 2);
+        }
+    }
+
+    private static String setting(Properties props, String key, String defaultValue) {
+        return System.getProperty("rns.layout." + key, props.getProperty(key, defaultValue)).trim();
+    }
+
+    private static long binomial(int n, int k) {
+        long result = 1;
+        for (int i = 1; i <= k; i++) {
+            result = result * (n - k + i) / i;
+        }
+        return result;
+    }
+
+    public int getGroupCount() {
+        return groupCount;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    public int getPickSize() {
+        return pickSize;
+    }
+
+    public int getCombinationCount() {
+        return combinationCount;
+    }
+
+    // 每次抽取占用的 int 个数
+    public int getDrawWidth() {
+        return drawWidth;
+    }
+
+    public int getMaxValue() {
+        return groupCount * groupSize;
+    }
+
+    public int firstValue(int groupIndex) {
+        return groupIndex * groupSize + 1;
+    }
+
+    // 把第 groupIndex 组第 combination 个组合写入 out[offset, offset + pickSize)
+    public void copyCombination(int groupIndex, int combination, int[] out, int offset) {
+        System.arraycopy(values, (groupIndex * combinationCount + combination) * pickSize, out, offset, pickSize);
+    }
+
+    // copyCombination 的逆运算：返回 group 在第 groupIndex 组中的组合序号
+    // 数字不属于该组、个数不对或不是严格递增时返回 -1
+    public int combinationIndex(int groupIndex, int[] group) {
+        if (group.length != pickSize) {
+            return -1;
+        }
+        return combinationIndex(groupIndex, group, 0);
+    }
+
+    // 同上，组合从 values[from] 开始，共 pickSize 个
+    public int combinationIndex(int groupIndex, int[] values, int from) {
+        int first = firstValue(groupIndex);
+        int rank = 0;
+        int previous = -1;
+        for (int k = 0; k < pickSize; k++) {
+            int offset = values[from + k] - first;
+            if (offset <= previous || offset >= groupSize) {
+                return -1;
+            }
+            for (int j = previous + 1; j < offset; j++) {
+                rank += rankTable[j * pickSize + k];
+            }
+            previous = offset;
+        }
+        return rank;
+    }
+
+    // 供 DrawEngine 直接查表，调用方不得修改
+    int[] valueTable() {
+        return values;
+    }
+
+    // 第一组、第二组……超过十组时用阿拉伯数字
+    public static String groupName(int groupIndex) {
+        int n = groupIndex + 1;
+        return "第" + (n <= CHINESE_NUMERALS.length ? CHINESE_NUMERALS[n - 1] : String.valueOf(n)) + "组";
+    }
+
+    // 历史记录的列：日期、时间，然后每组一列数字加姓名、卡号
+    public int getColumnCount() {
+        return 2 + groupCount * 3;
+    }
+
+    public String[] columnNames() {
+        String[] names = new String[getColumnCount()];
+        names[0] = "日期";
+        names[1] = "时间";
+        for (int g = 0; g < groupCount; g++) {
+            names[2 + g * 3] = groupName(g);
+            names[3 + g * 3] = "姓名";
+            names[4 + g * 3] = "卡号";
+        }
+        return names;
+    }
+
+    public String csvHeader() {
+        return String.join(",", columnNames());
+    }
+}
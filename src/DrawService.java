@@ -0,0 +1,345 @@
+package src;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// 内置 HTTP 抽取服务（jdk.httpserver），多台前台屏幕共用同一个抽取来源和同一份历史记录
+//   POST /draw                       抽取一次并写入历史记录
+//   GET  /history?limit=100          最近的记录；可加 name= / cardId= / prefix= / from=&to=（yyyy-MM-dd）查询
+//   POST /register?seq=&group=&name=&cardId=   补登，group 从 1 开始；参数也可放在表单请求体中
+// 响应均为 JSON；每个请求在一个虚拟线程上处理（运行时不支持时退回普通线程池）
+// 启动：java -cp out src.RandomNumberSelector --serve [端口] [--host 地址]，
+//      或界面模式下用 -Drns.http.port=端口 同时开启
+public final class DrawService {
+    public static final String PORT_PROPERTY = "rns.http.port";
+    public static final String HOST_PROPERTY = "rns.http.host";
+    static final int DEFAULT_PORT = 8080;
+    private static final String DEFAULT_HOST = "127.0.0.1";  // 默认只接受本机访问，局域网共用时指定 0.0.0.0
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final int DEFAULT_LIMIT = 100;
+    private static final int MAX_LIMIT = 10000;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final DrawEngine engine = new DrawEngine();  // 非线程安全，抽取时加锁
+
+    private DrawService(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static void main(String[] args) {
+        int port = Integer.getInteger(PORT_PROPERTY, DEFAULT_PORT);
+        String host = System.getProperty(HOST_PROPERTY, DEFAULT_HOST);
+        for (int i = 0; i < args.length; i++) {
+            if ("--host".equals(args[i]) && i + 1 < args.length) {
+                host = args[++i];
+            } else if (!"--serve".equals(args[i])) {
+                try {
+                    port = Integer.parseInt(args[i]);
+                } catch (NumberFormatException e) {
+                    System.err.println("未知参数: " + args[i]);
+                    usage();
+                    System.exit(2);
+                }
+            }
+        }
+        DataManager.init().join();
+        try {
+            DrawService service = start(host, port);
+            System.out.println("HTTP 抽取服务已启动: http://" + host + ":" + service.getPort() + "/");
+        } catch (IOException e) {
+            System.out.println("启动 HTTP 服务失败: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println("用法: --serve [端口，默认 " + DEFAULT_PORT + "] [--host 地址，默认 " + DEFAULT_HOST + "]");
+    }
+
+    // 界面模式下按系统属性决定是否同时开启服务
+    // 等历史记录加载完成后再开始监听，否则 /draw 的记录还没有序号（seq 为 -1）
+    static void startIfConfigured() {
+        Integer port = Integer.getInteger(PORT_PROPERTY);
+        if (port == null) {
+            return;
+        }
+        String host = System.getProperty(HOST_PROPERTY, DEFAULT_HOST);
+        DataManager.init().thenRun(() -> {
+            try {
+                DrawService service = start(host, port);
+                System.out.println("HTTP 抽取服务已启动: http://" + host + ":" + service.getPort() + "/");
+            } catch (IOException e) {
+                System.out.println("启动 HTTP 服务失败: " + e.getMessage());
+            }
+        });
+    }
+
+    // 端口为 0 时由系统分配，用 getPort() 取实际端口
+    public static DrawService start(String host, int port) throws IOException {
+        // 响应头和响应体分两次写出，开着 Nagle 时会和客户端的延迟确认叠加出约 40ms 的等待
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 1024);
+        ExecutorService executor = newExecutor();
+        DrawService service = new DrawService(server, executor);
+        server.createContext("/draw", service.handler("POST", service::handleDraw));
+        server.createContext("/history", service.handler("GET", service::handleHistory));
+        server.createContext("/register", service.handler("POST", service::handleRegister));
+        server.setExecutor(executor);
+        server.start();
+        return service;
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    // Java 21 起每个请求一个虚拟线程；源码按 Java 17 编译，所以通过反射取得
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "draw-service");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private interface Handler {
+        String handle(Map<String, String> params) throws RequestException;
+    }
+
+    // 参数错误等可以直接返回给客户端的错误
+    private static final class RequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private HttpHandler handler(String method, Handler handler) {
+        return exchange -> {
+            int status = 200;
+            String body;
+            try {
+                if (!method.equals(exchange.getRequestMethod())) {
+                    throw new RequestException(405, "只支持 " + method);
+                }
+                body = handler.handle(params(exchange));
+            } catch (RequestException e) {
+                status = e.status;
+                body = error(e.getMessage());
+            } catch (RuntimeException e) {
+                status = 500;
+                body = error(String.valueOf(e.getMessage()));
+            }
+            send(exchange, status, body);
+        };
+    }
+
+    private String handleDraw(Map<String, String> params) {
+        JfrEvents.Draw event = new JfrEvents.Draw();
+        event.begin();
+        int[][] numbers;
+        synchronized (engine) {
+            numbers = engine.draw();
+        }
+        if (event.shouldCommit()) {
+            event.source = "HTTP";
+            event.groups = numbers.length;
+            event.numbers = engine.getDrawWidth();
+            event.algorithm = RandomProvider.algorithm();
+            event.commit();
+        }
+        NumberRecord record = new NumberRecord(numbers);
+        DataManager.addRecord(record);
+        return appendRecord(new StringBuilder(), DataManager.copyOf(record)).toString();
+    }
+
+    private String handleHistory(Map<String, String> params) throws RequestException {
+        int limit = intParam(params, "limit", DEFAULT_LIMIT);
+        if (limit < 0 || limit > MAX_LIMIT) {
+            throw new RequestException(400, "limit 应在 0 到 " + MAX_LIMIT + " 之间");
+        }
+        List<NumberRecord> records;
+        int total = -1;
+        if (params.containsKey("name")) {
+            records = DataManager.findByName(params.get("name"));
+        } else if (params.containsKey("cardId")) {
+            records = DataManager.findByCardId(params.get("cardId"));
+        } else if (params.containsKey("prefix")) {
+            records = DataManager.findByPrefix(params.get("prefix"));
+        } else if (params.containsKey("from") || params.containsKey("to")) {
+            try {
+                LocalDate from = LocalDate.parse(params.getOrDefault("from", params.get("to")));
+                LocalDate to = LocalDate.parse(params.getOrDefault("to", params.get("from")));
+                records = DataManager.findByDate(from, to);
+            } catch (DateTimeParseException e) {
+                throw new RequestException(400, "日期格式应为 yyyy-MM-dd");
+            }
+        } else {
+            records = DataManager.recentRecords(limit);
+            total = DataManager.getHistorySize();
+        }
+        // 只返回最后 limit 条，count 为全部匹配数（不带条件时为历史记录总数）
+        // 界面线程可能同时在补登，只序列化在锁内复制的副本
+        int from = Math.max(0, records.size() - limit);
+        List<NumberRecord> page = DataManager.copyOf(records.subList(from, records.size()));
+        StringBuilder json = new StringBuilder();
+        json.append("{\"count\":").append(total >= 0 ? total : records.size()).append(",\"records\":[");
+        for (int i = 0; i < page.size(); i++) {
+            if (i > 0) json.append(',');
+            appendRecord(json, page.get(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    private String handleRegister(Map<String, String> params) throws RequestException {
+        int seq = intParam(params, "seq", -1);
+        int group = intParam(params, "group", 0);
+        if (group < 1 || group > DrawLayout.current().getGroupCount()) {
+            throw new RequestException(400, "group 应在 1 到 " + DrawLayout.current().getGroupCount() + " 之间");
+        }
+        NumberRecord record = DataManager.register(seq, group - 1,
+            params.getOrDefault("name", ""), params.getOrDefault("cardId", ""));
+        if (record == null) {
+            throw new RequestException(404, "记录不存在: " + seq);
+        }
+        return appendRecord(new StringBuilder(), record).toString();
+    }
+
+    private static int intParam(Map<String, String> params, String key, int defaultValue) throws RequestException {
+        String value = params.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, key + " 不是整数: " + value);
+        }
+    }
+
+    // 合并查询字符串和 application/x-www-form-urlencoded 请求体
+    private static Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseQuery(exchange.getRequestURI().getRawQuery(), params);
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readAllBytes();
+            if (body.length > 0) {
+                parseQuery(new String(body, StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseQuery(String query, Map<String, String> params) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // {"seq":1,"time":"2024-01-01 10:00:00","groups":[{"numbers":[1,2],"name":"","cardId":""},...]}
+    static StringBuilder appendRecord(StringBuilder json, NumberRecord record) {
+        json.append("{\"seq\":").append(record.getSequence());
+        json.append(",\"time\":");
+        appendString(json, record.getTimestamp());
+        json.append(",\"groups\":[");
+        int[][] numbers = record.getNumbers();
+        for (int g = 0; g < numbers.length; g++) {
+            if (g > 0) json.append(',');
+            json.append("{\"numbers\":[");
+            for (int k = 0; k < numbers[g].length; k++) {
+                if (k > 0) json.append(',');
+                json.append(numbers[g][k]);
+            }
+            json.append("],\"name\":");
+            appendString(json, record.getName(g) != null ? record.getName(g) : "");
+            json.append(",\"cardId\":");
+            appendString(json, record.getCardId(g) != null ? record.getCardId(g) : "");
+            json.append('}');
+        }
+        return json.append("]}");
+    }
+
+    private static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,117 @@
+package src;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// 抽取统计：每组各组合出现次数、每个数字出现次数、每个数字距上次出现隔了几次
+// 只有一个写入方（DataManager.addRecord，持有 DataManager 的锁），每次抽取 O(组数 × 每组个数) 更新计数
+// 读取方用 StampedLock 乐观读复制快照，不阻塞写入；复制期间恰好有写入时重试，多次失败才加读锁
+final class DrawStatistics {
+    private static final int BUILD_CHUNK = 64 * 1024;
+    private static final int OPTIMISTIC_RETRIES = 3;
+
+    private final DrawLayout layout;
+    private final StampedLock stampedLock = new StampedLock();
+    private final int[] combinationCounts;  // [g * combinationCount + c]
+    private final int[] hits;               // [数字]，下标 0 不用
+    private final int[] lastSeen;           // [数字]，最后一次出现的抽取序号，-1 表示从未出现
+    private int drawCount;
+
+    DrawStatistics(DrawLayout layout) {
+        this.layout = layout;
+        this.combinationCounts = new int[layout.getGroupCount() * layout.getCombinationCount()];
+        this.hits = new int[layout.getMaxValue() + 1];
+        this.lastSeen = new int[layout.getMaxValue() + 1];
+        Arrays.fill(lastSeen, -1);
+    }
+
+    // 并行统计已有记录：每段各统计一份，再合并（次数相加，最后出现位置取最大）
+    static DrawStatistics build(List<NumberRecord> records, DrawLayout layout) {
+        int chunks = (records.size() + BUILD_CHUNK - 1) / BUILD_CHUNK;
+        List<DrawStatistics> parts = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> {
+                DrawStatistics part = new DrawStatistics(layout);
+                int end = Math.min(records.size(), (c + 1) * BUILD_CHUNK);
+                part.drawCount = c * BUILD_CHUNK;  // 让 lastSeen 使用全局抽取序号
+                for (int i = c * BUILD_CHUNK; i < end; i++) {
+                    part.count(records.get(i));
+                }
+                return part;
+            })
+            .collect(Collectors.toList());
+        DrawStatistics stats = new DrawStatistics(layout);
+        for (DrawStatistics part : parts) {
+            for (int i = 0; i < stats.combinationCounts.length; i++) {
+                stats.combinationCounts[i] += part.combinationCounts[i];
+            }
+            for (int v = 0; v < stats.hits.length; v++) {
+                stats.hits[v] += part.hits[v];
+                stats.lastSeen[v] = Math.max(stats.lastSeen[v], part.lastSeen[v]);
+            }
+        }
+        stats.drawCount = records.size();
+        return stats;
+    }
+
+    // 计入一次新的抽取
+    void record(NumberRecord record) {
+        long stamp = stampedLock.writeLock();
+        try {
+            count(record);
+        } finally {
+            stampedLock.unlockWrite(stamp);
+        }
+    }
+
+    private void count(NumberRecord record) {
+        int[][] numbers = record.getNumbers();
+        int combinations = layout.getCombinationCount();
+        for (int g = 0; g < numbers.length && g < layout.getGroupCount(); g++) {
+            int c = layout.combinationIndex(g, numbers[g]);
+            if (c >= 0) {
+                combinationCounts[g * combinations + c]++;
+            }
+            for (int value : numbers[g]) {
+                if (value > 0 && value < hits.length) {
+                    hits[value]++;
+                    lastSeen[value] = drawCount;
+                }
+            }
+        }
+        drawCount++;
+    }
+
+    StatisticsSnapshot snapshot() {
+        int[] combinationCopy = new int[combinationCounts.length];
+        int[] hitsCopy = new int[hits.length];
+        int[] lastSeenCopy = new int[lastSeen.length];
+        for (int attempt = 0; attempt < OPTIMISTIC_RETRIES; attempt++) {
+            long stamp = stampedLock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue; // 正在写入
+            }
+            int count = copyInto(combinationCopy, hitsCopy, lastSeenCopy);
+            if (stampedLock.validate(stamp)) {
+                return new StatisticsSnapshot(layout, count, combinationCopy, hitsCopy, lastSeenCopy);
+            }
+        }
+        long stamp = stampedLock.readLock();
+        try {
+            int count = copyInto(combinationCopy, hitsCopy, lastSeenCopy);
+            return new StatisticsSnapshot(layout, count, combinationCopy, hitsCopy, lastSeenCopy);
+        } finally {
+            stampedLock.unlockRead(stamp);
+        }
+    }
+
+    private int copyInto(int[] combinationCopy, int[] hitsCopy, int[] lastSeenCopy) {
+        System.arraycopy(combinationCounts, 0, combinationCopy, 0, combinationCopy.length);
+        System.arraycopy(hits, 0, hitsCopy, 0, hitsCopy.length);
+        System.arraycopy(lastSeen, 0, lastSeenCopy, 0, lastSeenCopy.length);
+        return drawCount;
+    }
+}
@@ -0,0 +1,122 @@
+package src;
+
+import javax.swing.*;
+
+// 事件线程（EDT）监视：后台线程每 100ms 向事件队列投递一个探测任务，探测任务执行时记录排队延迟
+// 探测任务超过阈值还没执行时，抓取事件线程当时的调用栈输出到控制台，便于排查“界面卡住一下”的问题
+// 同时汇总数字画板每次绘制、历史记录窗口每次打开的耗时，定期输出一行统计
+// 阈值：-Drns.edt.stallMillis=500；统计输出间隔：-Drns.edt.logSeconds=60（0 表示不输出）
+public final class EdtMonitor {
+    public static final String STALL_PROPERTY = "rns.edt.stallMillis";
+    public static final String LOG_PROPERTY = "rns.edt.logSeconds";
+    private static final long PROBE_INTERVAL_MILLIS = 100;
+    private static final int STACK_DEPTH = 40;
+
+    private static final LatencyHistogram eventLag = new LatencyHistogram("事件延迟");
+    private static final LatencyHistogram boardPaint = new LatencyHistogram("数字绘制");
+    private static final LatencyHistogram historyOpen = new LatencyHistogram("打开历史记录");
+
+    private static volatile Thread eventThread;
+    private static volatile long probeSentNanos;   // 0 表示没有未执行的探测任务
+    private static Thread watchdog;
+
+    private EdtMonitor() {
+    }
+
+    public static synchronized void start() {
+        if (watchdog != null) {
+            return;
+        }
+        long stallNanos = Long.getLong(STALL_PROPERTY, 500) * 1_000_000L;
+        long logNanos = Long.getLong(LOG_PROPERTY, 60) * 1_000_000_000L;
+        watchdog = new Thread(() -> watch(stallNanos, logNanos), "edt-monitor");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }
+
+    public static LatencyHistogram getEventLag() {
+        return eventLag;
+    }
+
+    public static LatencyHistogram getBoardPaint() {
+        return boardPaint;
+    }
+
+    public static LatencyHistogram getHistoryOpen() {
+        return historyOpen;
+    }
+
+    static void recordBoardPaint(long nanos) {
+        boardPaint.record(nanos);
+    }
+
+    static void recordHistoryOpen(long nanos) {
+        historyOpen.record(nanos);
+    }
+
+    private static void watch(long stallNanos, long logNanos) {
+        long nextLog = System.nanoTime() + logNanos;
+        boolean stallReported = false;
+        while (true) {
+            try {
+                Thread.sleep(PROBE_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+            long now = System.nanoTime();
+            long sent = probeSentNanos;
+            if (sent == 0) {
+                // 上一个探测已执行，投递下一个
+                stallReported = false;
+                long probeSent = now;
+                probeSentNanos = probeSent;
+                SwingUtilities.invokeLater(() -> {
+                    long lag = System.nanoTime() - probeSent;
+                    eventThread = Thread.currentThread();
+                    probeSentNanos = 0;
+                    eventLag.record(lag);
+                    if (lag >= stallNanos) {
+                        System.out.printf("事件线程卡顿结束, 共 %.0f ms%n", lag / 1e6);
+                    }
+                });
+            } else if (!stallReported && now - sent >= stallNanos) {
+                stallReported = true;
+                reportStall(now - sent);
+            }
+            if (logNanos > 0 && now >= nextLog) {
+                nextLog = now + logNanos;
+                logSummary();
+            }
+        }
+    }
+
+    private static void reportStall(long stalledNanos) {
+        StringBuilder message = new StringBuilder();
+        message.append(String.format("事件线程已卡住 %.0f ms", stalledNanos / 1e6));
+        Thread thread = eventThread;
+        if (thread == null) {
+            System.out.println(message);
+            return;
+        }
+        message.append("，当前调用栈:");
+        StackTraceElement[] stack = thread.getStackTrace();
+        for (int i = 0; i < stack.length && i < STACK_DEPTH; i++) {
+            message.append(System.lineSeparator()).append("    at ").append(stack[i]);
+        }
+        if (stack.length > STACK_DEPTH) {
+            message.append(System.lineSeparator()).append("    ... ").append(stack.length - STACK_DEPTH).append(" 层");
+        }
+        System.out.println(message);
+    }
+
+    static void logSummary() {
+        StringBuilder line = new StringBuilder("界面响应: ").append(eventLag);
+        if (boardPaint.getCount() > 0) {
+            line.append("; ").append(boardPaint);
+        }
+        if (historyOpen.getCount() > 0) {
+            line.append("; ").append(historyOpen);
+        }
+        System.out.println(line);
+    }
+}
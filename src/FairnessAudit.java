@@ -0,0 +1,371 @@
+package src;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+import java.util.random.RandomGenerator;
+
+// 抽取算法的公平性检验，用于向审计方证明结果均匀、各组独立
+// 用与界面相同的 DrawEngine 和 RandomProvider 抽取大量样本，检验：
+//   组合均匀性：每组各组合出现次数的卡方拟合检验
+//   组间独立性：任意两组组合的列联表卡方检验
+//   序列相关：同一组相邻两次抽取的组合序号的滞后 1 自相关
+//   游程检验：同一组组合序号落在前半/后半的 Wald-Wolfowitz 游程数
+// 样本按 2^20 次一段分给 fork/join 任务，每段使用各自独立的随机流和计数器，最后合并计数
+// 运行：java -cp out src.FairnessAudit [抽取次数，默认 100000000]
+public final class FairnessAudit {
+    static final double ALPHA = 0.001;  // p 值低于此值标记为可疑
+    private static final long DEFAULT_DRAWS = 100_000_000L;
+    private static final int LEAF_DRAWS = 1 << 20;
+    private static final int BATCH = 4096;
+    private static final int MAX_JOINT_CELLS = 1 << 16;  // 列联表过大时跳过独立性检验
+
+    private FairnessAudit() {
+    }
+
+    public static void main(String[] args) {
+        long draws = args.length > 0 ? Long.parseLong(args[0]) : DEFAULT_DRAWS;
+        System.out.println(run(DrawLayout.current(), draws));
+    }
+
+    // 执行全部检验并返回文字报告
+    public static String run(DrawLayout layout, long draws) {
+        return run(layout, draws, RandomProvider::newGenerator);
+    }
+
+    // 可指定随机流来源，便于对照检验其他生成器
+    static String run(DrawLayout layout, long draws, Supplier<RandomGenerator> source) {
+        if (draws < 2) {
+            throw new IllegalArgumentException("抽取次数至少为 2: " + draws);
+        }
+        int leaves = (int) ((draws + LEAF_DRAWS - 1) / LEAF_DRAWS);
+        // 随机流按段号预先创建，指定种子时结果可复现，与线程调度无关
+        RandomGenerator[] generators = new RandomGenerator[leaves];
+        for (int i = 0; i < leaves; i++) {
+            generators[i] = source.get();
+        }
+
+        long start = System.nanoTime();
+        Counters total = ForkJoinPool.commonPool().invoke(new AuditTask(layout, generators, draws, 0, leaves));
+        long elapsed = System.nanoTime() - start;
+        return report(layout, total, elapsed);
+    }
+
+    // 各项计数，段内累加，段间相加合并
+    private static final class Counters {
+        final int groups;
+        final int combinations;
+        final long[] combos;   // [g * C + c]
+        final long[] joint;    // [pair * C * C + cg * C + ch]，pair 为 (g, h) 的序号，g < h；过大时为 null
+        final long[] sumX;     // 每组组合序号之和
+        final long[] sumX2;
+        final long[] sumXY;    // 相邻两次乘积之和
+        final long[] pairs;    // 相邻对数
+        final long[] runs;
+        final double[] runsMean;
+        final double[] runsVariance;
+        long draws;
+
+        Counters(int groups, int combinations) {
+            this.groups = groups;
+            this.combinations = combinations;
+            this.combos = new long[groups * combinations];
+            long cells = (long) groups * (groups - 1) / 2 * combinations * combinations;
+            this.joint = groups > 1 && (long) combinations * combinations <= MAX_JOINT_CELLS
+                ? new long[(int) cells] : null;
+            this.sumX = new long[groups];
+            this.sumX2 = new long[groups];
+            this.sumXY = new long[groups];
+            this.pairs = new long[groups];
+            this.runs = new long[groups];
+            this.runsMean = new double[groups];
+            this.runsVariance = new double[groups];
+        }
+
+        void merge(Counters other) {
+            add(combos, other.combos);
+            if (joint != null) {
+                add(joint, other.joint);
+            }
+            add(sumX, other.sumX);
+            add(sumX2, other.sumX2);
+            add(sumXY, other.sumXY);
+            add(pairs, other.pairs);
+            add(runs, other.runs);
+            for (int g = 0; g < groups; g++) {
+                runsMean[g] += other.runsMean[g];
+                runsVariance[g] += other.runsVariance[g];
+            }
+            draws += other.draws;
+        }
+
+        private static void add(long[] target, long[] source) {
+            for (int i = 0; i < target.length; i++) {
+                target[i] += source[i];
+            }
+        }
+    }
+
+    @SuppressWarnings("serial")  // 只在 ForkJoinPool 内使用，不会序列化
+    private static final class AuditTask extends RecursiveTask<Counters> {
+        private final DrawLayout layout;
+        private final RandomGenerator[] generators;
+        private final long draws;
+        private final int from;
+        private final int to;
+
+        AuditTask(DrawLayout layout, RandomGenerator[] generators, long draws, int from, int to) {
+            this.layout = layout;
+            this.generators = generators;
+            this.draws = draws;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counters compute() {
+            if (to - from == 1) {
+                long first = (long) from * LEAF_DRAWS;
+                return sample(layout, generators[from], (int) Math.min(LEAF_DRAWS, draws - first));
+            }
+            int mid = (from + to) >>> 1;
+            AuditTask left = new AuditTask(layout, generators, draws, from, mid);
+            left.fork();
+            Counters result = new AuditTask(layout, generators, draws, mid, to).compute();
+            result.merge(left.join());
+            return result;
+        }
+    }
+
+    // 一段样本：批量抽取到复用的数组，再逐次累加计数
+    private static Counters sample(DrawLayout layout, RandomGenerator random, int count) {
+        int groups = layout.getGroupCount();
+        int pick = layout.getPickSize();
+        int combinations = layout.getCombinationCount();
+        int half = combinations / 2;
+        Counters counters = new Counters(groups, combinations);
+        DrawEngine engine = new DrawEngine(layout, random);
+        int width = engine.getDrawWidth();
+        int[] buffer = new int[BATCH * width];
+        int[] ranks = new int[groups];
+        int[] previous = new int[groups];
+        long[] low = new long[groups];
+        Arrays.fill(previous, -1);
+
+        for (int done = 0; done < count; ) {
+            int n = Math.min(BATCH, count - done);
+            engine.drawBatch(buffer, 0, n);
+            for (int i = 0; i < n; i++) {
+                int base = i * width;
+                for (int g = 0; g < groups; g++) {
+                    int r = layout.combinationIndex(g, buffer, base + g * pick);
+                    ranks[g] = r;
+                    counters.combos[g * combinations + r]++;
+                    counters.sumX[g] += r;
+                    counters.sumX2[g] += (long) r * r;
+                    int p = previous[g];
+                    if (p >= 0) {
+                        counters.sumXY[g] += (long) p * r;
+                        counters.pairs[g]++;
+                    }
+                    boolean isLow = r < half;
+                    if (p < 0 || isLow != (p < half)) {
+                        counters.runs[g]++;
+                    }
+                    if (isLow) {
+                        low[g]++;
+                    }
+                    previous[g] = r;
+                }
+                if (counters.joint != null) {
+                    int pair = 0;
+                    int cells = combinations * combinations;
+                    for (int g = 0; g < groups; g++) {
+                        for (int h = g + 1; h < groups; h++) {
+                            counters.joint[pair * cells + ranks[g] * combinations + ranks[h]]++;
+                            pair++;
+                        }
+                    }
+                }
+            }
+            done += n;
+        }
+
+        // 本段游程数的期望和方差；各段相互独立，合并时直接相加
+        for (int g = 0; g < groups; g++) {
+            double n1 = low[g];
+            double n2 = count - low[g];
+            double n = count;
+            if (n1 > 0 && n2 > 0) {
+                counters.runsMean[g] = 2 * n1 * n2 / n + 1;
+                counters.runsVariance[g] = 2 * n1 * n2 * (2 * n1 * n2 - n) / (n * n * (n - 1));
+            } else {
+                counters.runsMean[g] = 1;
+            }
+        }
+        counters.draws = count;
+        return counters;
+    }
+
+    private static String report(DrawLayout layout, Counters c, long elapsedNanos) {
+        int groups = c.groups;
+        int combinations = c.combinations;
+        StringBuilder sb = new StringBuilder();
+        int[] suspicious = new int[1];
+        double seconds = elapsedNanos / 1e9;
+        sb.append(String.format("公平性检验: %d 次抽取, 算法 %s, %d 组每组 %d 选 %d, %d 个线程%n",
+            c.draws, RandomProvider.algorithm(), groups, layout.getGroupSize(), layout.getPickSize(),
+            ForkJoinPool.commonPool().getParallelism()));
+        sb.append(String.format("耗时 %.2f s, %.2f 百万次/秒 (%.1f ns/次)%n",
+            seconds, c.draws / seconds / 1e6, (double) elapsedNanos / c.draws));
+        if (combinations < 2) {
+            sb.append("每组只有一种组合，无需检验\n");
+            return sb.toString();
+        }
+
+        sb.append("组合均匀性（卡方拟合，自由度 ").append(combinations - 1).append("）\n");
+        double expected = (double) c.draws / combinations;
+        for (int g = 0; g < groups; g++) {
+            double chi = 0;
+            for (int k = 0; k < combinations; k++) {
+                double d = c.combos[g * combinations + k] - expected;
+                chi += d * d / expected;
+            }
+            line(sb, suspicious, "  " + DrawLayout.groupName(g) + String.format(": 卡方=%.3f", chi),
+                chiSquareP(chi, combinations - 1));
+        }
+
+        if (c.joint != null) {
+            int df = (combinations - 1) * (combinations - 1);
+            sb.append("组间独立性（列联表卡方，自由度 ").append(df).append("）\n");
+            int pair = 0;
+            int cells = combinations * combinations;
+            for (int g = 0; g < groups; g++) {
+                for (int h = g + 1; h < groups; h++) {
+                    double chi = 0;
+                    for (int a = 0; a < combinations; a++) {
+                        for (int b = 0; b < combinations; b++) {
+                            double e = (double) c.combos[g * combinations + a] * c.combos[h * combinations + b] / c.draws;
+                            double d = c.joint[pair * cells + a * combinations + b] - e;
+                            chi += e > 0 ? d * d / e : 0;
+                        }
+                    }
+                    line(sb, suspicious, "  " + DrawLayout.groupName(g) + "-" + DrawLayout.groupName(h)
+                        + String.format(": 卡方=%.3f", chi), chiSquareP(chi, df));
+                    pair++;
+                }
+            }
+        } else {
+            sb.append("组间独立性: 组数不足或组合数过多，跳过\n");
+        }
+
+        sb.append("序列相关（滞后 1）\n");
+        for (int g = 0; g < groups; g++) {
+            double n = c.draws;
+            double mean = c.sumX[g] / n;
+            double variance = c.sumX2[g] / n - mean * mean;
+            double r = (c.sumXY[g] / (double) c.pairs[g] - mean * mean) / variance;
+            double z = r * Math.sqrt(c.pairs[g]);
+            line(sb, suspicious, "  " + DrawLayout.groupName(g) + String.format(": r=%.6f, z=%.3f", r, z),
+                normalTwoSidedP(z));
+        }
+
+        sb.append("游程检验（组合序号前半/后半）\n");
+        for (int g = 0; g < groups; g++) {
+            double z = (c.runs[g] - c.runsMean[g]) / Math.sqrt(c.runsVariance[g]);
+            line(sb, suspicious, "  " + DrawLayout.groupName(g) + String.format(": 游程 %d, 期望 %.1f, z=%.3f",
+                c.runs[g], c.runsMean[g], z), normalTwoSidedP(z));
+        }
+
+        if (suspicious[0] == 0) {
+            sb.append(String.format("结论: 全部检验 p ≥ %s%n", ALPHA));
+        } else {
+            sb.append(String.format("结论: %d 项检验 p < %s，请用更多样本复查%n", suspicious[0], ALPHA));
+        }
+        return sb.toString();
+    }
+
+    private static void line(StringBuilder sb, int[] suspicious, String text, double p) {
+        sb.append(text).append(String.format(", p=%.4f", p));
+        if (p < ALPHA) {
+            sb.append("  <- 可疑");
+            suspicious[0]++;
+        }
+        sb.append('\n');
+    }
+
+    // 卡方分布上侧概率 P(X > chi) = Q(df / 2, chi / 2)
+    static double chiSquareP(double chi, int df) {
+        return regularizedGammaQ(df / 2.0, chi / 2.0);
+    }
+
+    // 标准正态双侧概率 P(|Z| > |z|) = erfc(|z| / √2) = Q(1/2, z² / 2)
+    static double normalTwoSidedP(double z) {
+        if (Double.isNaN(z)) {
+            return Double.NaN;
+        }
+        return regularizedGammaQ(0.5, z * z / 2);
+    }
+
+    // 正则化不完全伽马函数 Q(a, x) = 1 - P(a, x)
+    // x < a + 1 时用级数求 P，否则用连分式直接求 Q
+    static double regularizedGammaQ(double a, double x) {
+        if (x <= 0) {
+            return 1;
+        }
+        double logPrefix = a * Math.log(x) - x - logGamma(a);
+        if (x < a + 1) {
+            double term = 1 / a;
+            double sum = term;
+            for (int n = 1; n < 10000; n++) {
+                term *= x / (a + n);
+                sum += term;
+                if (Math.abs(term) < Math.abs(sum) * 1e-15) {
+                    break;
+                }
+            }
+            return Math.max(0, 1 - sum * Math.exp(logPrefix));
+        }
+        // Lentz 算法求连分式
+        double tiny = 1e-300;
+        double b = x + 1 - a;
+        double cc = 1 / tiny;
+        double d = 1 / b;
+        double h = d;
+        for (int i = 1; i < 10000; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < tiny) d = tiny;
+            cc = b + an / cc;
+            if (Math.abs(cc) < tiny) cc = tiny;
+            d = 1 / d;
+            double delta = d * cc;
+            h *= delta;
+            if (Math.abs(delta - 1) < 1e-15) {
+                break;
+            }
+        }
+        return Math.exp(logPrefix) * h;
+    }
+
+    // Lanczos 近似 ln Γ(x)，x > 0
+    static double logGamma(double x) {
+        double[] coefficients = {
+            676.5203681218851, -1259.1392167224028, 771.32342877765313, -176.61502916214059,
+            12.507343278686905, -0.13857109526572012, 9.9843695780195716e-6, 1.5056327351493116e-7
+        };
+        if (x < 0.5) {
+            // 反射公式
+            return Math.log(Math.PI / Math.abs(Math.sin(Math.PI * x))) - logGamma(1 - x);
+        }
+        x -= 1;
+        double sum = 0.99999999999980993;
+        for (int i = 0; i < coefficients.length; i++) {
+            sum += coefficients[i] / (x + i + 1);
+        }
+        double t = x + coefficients.length - 0.5;
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+}
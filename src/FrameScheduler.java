@@ -0,0 +1,121 @@
+package src;
+
+import javax.swing.*;
+import java.util.function.Consumer;
+
+// 按 System.nanoTime 计时的动画调度：第 i 帧应在 开始时间 + i × 帧间隔 显示，总时长固定
+// 每次只定时到下一帧的时刻；事件线程忙、定时器来晚时直接跳到当前应显示的帧，跳过的帧计为丢帧，
+// 所以机器再慢动画也按时结束，不会被拉长
+// 帧率和时长用系统属性 rns.animation.fps、rns.animation.millis 配置，默认 20 帧/秒、1 秒
+// 每次动画的帧统计记为 JFR 事件 rns.Animation，不输出到控制台
+final class FrameScheduler {
+    static final String FPS_PROPERTY = "rns.animation.fps";
+    static final String DURATION_PROPERTY = "rns.animation.millis";
+    private static final int DEFAULT_FPS = 20;
+    private static final int DEFAULT_DURATION_MILLIS = 1000;
+
+    // 一次动画的帧统计
+    static final class Stats {
+        final int rendered;
+        final long dropped;
+        final long worstFrameNanos;  // 相邻两次显示之间的最长间隔
+
+        Stats(int rendered, long dropped, long worstFrameNanos) {
+            this.rendered = rendered;
+            this.dropped = dropped;
+            this.worstFrameNanos = worstFrameNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("显示 %d 帧, 丢弃 %d 帧, 最长帧间隔 %.1f ms", rendered, dropped, worstFrameNanos / 1e6);
+        }
+    }
+
+    private final long frameNanos;
+    private final long durationNanos;
+    private final int totalFrames;
+    private final Timer timer;
+
+    private Runnable frame;
+    private Consumer<Stats> done;
+    private JfrEvents.Animation event;
+    private long startNanos;
+    private long lastShownNanos;
+    private long lastIndex;
+    private int rendered;
+    private long dropped;
+    private long worstFrameNanos;
+
+    FrameScheduler(int fps, long durationMillis) {
+        this.frameNanos = 1_000_000_000L / Math.max(1, fps);
+        this.durationNanos = Math.max(0, durationMillis) * 1_000_000L;
+        this.totalFrames = (int) ((durationNanos + frameNanos - 1) / frameNanos);
+        this.timer = new Timer(0, e -> tick());
+        timer.setRepeats(false);
+    }
+
+    static FrameScheduler fromProperties() {
+        return new FrameScheduler(Integer.getInteger(FPS_PROPERTY, DEFAULT_FPS),
+            Integer.getInteger(DURATION_PROPERTY, DEFAULT_DURATION_MILLIS));
+    }
+
+    boolean isRunning() {
+        return frame != null;
+    }
+
+    // 在事件线程上调用；frame 每显示一帧调用一次，时长结束后调用 done
+    void start(Runnable frame, Consumer<Stats> done) {
+        if (isRunning()) {
+            return;
+        }
+        this.frame = frame;
+        this.done = done;
+        event = new JfrEvents.Animation();
+        event.begin();
+        startNanos = System.nanoTime();
+        lastShownNanos = startNanos;
+        lastIndex = -1;
+        rendered = 0;
+        dropped = 0;
+        worstFrameNanos = 0;
+        tick();
+    }
+
+    private void tick() {
+        long now = System.nanoTime();
+        long elapsed = now - startNanos;
+        if (elapsed >= durationNanos) {
+            dropped += totalFrames - 1 - lastIndex;
+            worstFrameNanos = Math.max(worstFrameNanos, now - lastShownNanos);
+            if (event.shouldCommit()) {
+                event.rendered = rendered;
+                event.dropped = dropped;
+                event.worstFrame = worstFrameNanos;
+                event.commit();
+            }
+            Consumer<Stats> callback = done;
+            frame = null;
+            done = null;
+            event = null;
+            callback.accept(new Stats(rendered, dropped, worstFrameNanos));
+            return;
+        }
+        long index = elapsed / frameNanos;
+        if (index > lastIndex) {
+            dropped += index - lastIndex - 1;
+            lastIndex = index;
+            if (rendered > 0) {
+                worstFrameNanos = Math.max(worstFrameNanos, now - lastShownNanos);
+            }
+            lastShownNanos = now;
+            rendered++;
+            frame.run();
+        }
+        // 定时到下一帧（或动画结束）的时刻
+        long next = Math.min((lastIndex + 1) * frameNanos, durationNanos);
+        long delayNanos = next - (System.nanoTime() - startNanos);
+        timer.setInitialDelay((int) Math.max(0, (delayNanos + 999_999) / 1_000_000));
+        timer.restart();
+    }
+}
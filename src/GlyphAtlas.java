@@ -0,0 +1,148 @@
+package src;
+
+import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 数字字形图集：把 1..最大值 和分隔符按当前字号预先画进一张图，绘制时只做图像复制
+// 大字号抗锯齿文字每次 drawString 都要重新光栅化；图集只在画板尺寸变化时重建
+// 图集按背景色不透明绘制（背景是纯色），复制时不需要做 alpha 混合
+// 图集按屏幕缩放（如 Windows 的 125%、150%）以设备像素绘制，复制时一个像素对一个像素，不会发虚
+final class GlyphAtlas {
+    private static final int MAX_ROW_WIDTH = 2048;  // 超过后换行，避免单张图过宽（设备像素）
+    private static final int FONT_CACHE_SIZE = 64;  // 拖动窗口时经过的字号很多，只留最近用过的
+
+    // 按访问顺序淘汰，只在事件线程使用，加锁只是为了保险
+    private static final Map<String, Font> FONTS = new LinkedHashMap<String, Font>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Font> eldest) {
+            return size() > FONT_CACHE_SIZE;
+        }
+    };
+
+    private final BufferedImage image;
+    private final double scaleX;
+    private final double scaleY;
+    private final int height;        // 逻辑坐标
+    private final int pixelHeight;   // 图集中的设备像素
+    private final int ascent;
+    private final int[] x;           // [数字] 在图集中的设备像素位置，下标 0 为分隔符
+    private final int[] y;
+    private final int[] width;       // 逻辑坐标
+    private final int[] pixelWidth;  // 设备像素
+
+    // Font 按字体、样式和字号缓存，窗口反复调整到相同大小时不再重新创建
+    static Font font(Font base, int size) {
+        String key = base.getName() + '/' + base.getStyle() + '/' + size;
+        synchronized (FONTS) {
+            return FONTS.computeIfAbsent(key, k -> base.deriveFont((float) size));
+        }
+    }
+
+    // 屏幕的缩放比例，没有 GraphicsConfiguration（组件尚未显示）时按 1 计算
+    static double scaleX(GraphicsConfiguration config) {
+        return config != null ? config.getDefaultTransform().getScaleX() : 1.0;
+    }
+
+    static double scaleY(GraphicsConfiguration config) {
+        return config != null ? config.getDefaultTransform().getScaleY() : 1.0;
+    }
+
+    GlyphAtlas(GraphicsConfiguration config, Font numberFont, Color numberColor,
+               Font separatorFont, Color separatorColor, String separator, int maxValue, Color background) {
+        String[] texts = new String[maxValue + 1];
+        texts[0] = separator;
+        for (int v = 1; v <= maxValue; v++) {
+            texts[v] = String.valueOf(v);
+        }
+
+        // 先量出每个字形的位置，再一次性画进图集
+        BufferedImage scratch = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        Graphics2D measure = scratch.createGraphics();
+        FontMetrics numberMetrics = measure.getFontMetrics(numberFont);
+        FontMetrics separatorMetrics = measure.getFontMetrics(separatorFont);
+        measure.dispose();
+        ascent = Math.max(numberMetrics.getAscent(), separatorMetrics.getAscent());
+        height = ascent + Math.max(numberMetrics.getDescent(), separatorMetrics.getDescent());
+        scaleX = scaleX(config);
+        scaleY = scaleY(config);
+        pixelHeight = Math.max(1, (int) Math.ceil(height * scaleY));
+        x = new int[texts.length];
+        y = new int[texts.length];
+        width = new int[texts.length];
+        pixelWidth = new int[texts.length];
+        int rowX = 0;
+        int rowY = 0;
+        int atlasWidth = 1;
+        for (int i = 0; i < texts.length; i++) {
+            width[i] = Math.max(1, (i == 0 ? separatorMetrics : numberMetrics).stringWidth(texts[i]));
+            pixelWidth[i] = Math.max(1, (int) Math.ceil(width[i] * scaleX));
+            if (rowX > 0 && rowX + pixelWidth[i] > MAX_ROW_WIDTH) {
+                rowX = 0;
+                rowY += pixelHeight;
+            }
+            x[i] = rowX;
+            y[i] = rowY;
+            rowX += pixelWidth[i];
+            atlasWidth = Math.max(atlasWidth, rowX);
+        }
+        int atlasHeight = Math.max(1, rowY + pixelHeight);
+
+        image = config != null
+            ? config.createCompatibleImage(atlasWidth, atlasHeight, Transparency.OPAQUE)
+            : new BufferedImage(atlasWidth, atlasHeight, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setColor(background);
+        g2.fillRect(0, 0, atlasWidth, atlasHeight);
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        AffineTransform identity = g2.getTransform();
+        for (int i = 0; i < texts.length; i++) {
+            // 每个字形从自己的整数像素位置开始，按屏幕缩放光栅化
+            g2.setTransform(identity);
+            g2.translate(x[i], y[i]);
+            g2.scale(scaleX, scaleY);
+            g2.setFont(i == 0 ? separatorFont : numberFont);
+            g2.setColor(i == 0 ? separatorColor : numberColor);
+            g2.drawString(texts[i], 0, ascent);
+        }
+        g2.dispose();
+    }
+
+    // 图集按这个缩放比例绘制，屏幕缩放变化后需要重建
+    boolean matches(double scaleX, double scaleY) {
+        return this.scaleX == scaleX && this.scaleY == scaleY;
+    }
+
+    int getWidth(int glyph) {
+        return width[glyph];
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    // glyph 为 0 时画分隔符，否则画对应数字；(left, top) 为字形左上角（逻辑坐标）
+    // 屏幕有缩放时换到设备坐标按整数像素复制，不经过插值
+    void draw(Graphics g, int glyph, int left, int top) {
+        int sx = x[glyph];
+        int sy = y[glyph];
+        int w = pixelWidth[glyph];
+        if ((scaleX != 1 || scaleY != 1) && g instanceof Graphics2D) {
+            Graphics2D g2 = (Graphics2D) g;
+            AffineTransform transform = g2.getTransform();
+            if (transform.getType() == (transform.getType() & (AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_MASK_SCALE))
+                    && transform.getScaleX() == scaleX && transform.getScaleY() == scaleY) {
+                int dx = (int) Math.round(left * scaleX + transform.getTranslateX());
+                int dy = (int) Math.round(top * scaleY + transform.getTranslateY());
+                g2.setTransform(new AffineTransform());
+                g2.drawImage(image, dx, dy, dx + w, dy + pixelHeight, sx, sy, sx + w, sy + pixelHeight, null);
+                g2.setTransform(transform);
+                return;
+            }
+        }
+        g.drawImage(image, left, top, left + width[glyph], top + height,
+            sx, sy, sx + w, sy + pixelHeight, null);
+    }
+}
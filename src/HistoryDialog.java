@@ -2,22 +2,30 @@ package src;
 
 import javax.swing.*;
 import javax.swing.border.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.io.*;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
 import java.util.List;
 
 public class HistoryDialog extends JDialog {
+    private static final int REFRESH_MILLIS = 500;
+    private static final int SEARCH_LIMIT = 1000;  // 搜索最多显示的条数，前缀太短时提示继续输入
+
     private JTable table;
-    private List<NumberRecord> historyData;
+    private HistoryTableModel model;
+    private JTextField searchField;
+    private JLabel countLabel;
+    private Timer refreshTimer;  // HTTP 服务等其他来源新增记录时刷新表格
 
     public HistoryDialog(Frame owner, List<NumberRecord> history) {
         super(owner, "历史记录", true);
         setUndecorated(true);
-        this.historyData = history;
         
         // 创建主面板
         JPanel mainPanel = new JPanel(new BorderLayout(0, 10));
@@ -41,8 +49,37 @@ public class HistoryDialog extends JDialog {
         JLabel titleLabel = new JLabel("历史记录");
         titleLabel.setFont(new Font("微软雅黑", Font.PLAIN, 14));
         
+        // 搜索框：按姓名或卡号前缀过滤，每次输入都走前缀索引
+        JLabel searchLabel = new JLabel("搜索");
+        searchLabel.setFont(new Font("微软雅黑", Font.PLAIN, 14));
+        searchField = new JTextField(16);
+        searchField.setFont(new Font("微软雅黑", Font.PLAIN, 13));
+        searchField.setToolTipText("输入姓名或卡号开头");
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                applySearch();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                applySearch();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                applySearch();
+            }
+        });
+        countLabel = new JLabel("共 " + history.size() + " 条");
+        countLabel.setFont(new Font("微软雅黑", Font.PLAIN, 12));
+        countLabel.setForeground(new Color(120, 120, 120));
+
         titlePanel.add(backButton);
         titlePanel.add(titleLabel);
+        titlePanel.add(searchLabel);
+        titlePanel.add(searchField);
+        titlePanel.add(countLabel);
         
         // 创建按钮面板（右侧）
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
@@ -52,7 +89,7 @@ public class HistoryDialog extends JDialog {
         JButton exportButton = new JButton("导出");
         styleButton(exportButton, new Color(24, 144, 255));
         exportButton.setForeground(Color.WHITE);
-        exportButton.addActionListener(e -> exportHistory(history));
+        exportButton.addActionListener(e -> exportHistory(DataManager.getHistory()));
         
         // 关闭按钮
         JButton closeButton = new JButton("×");
@@ -65,41 +102,8 @@ public class HistoryDialog extends JDialog {
         titleBar.add(titlePanel, BorderLayout.WEST);
         titleBar.add(buttonPanel, BorderLayout.EAST);
         
-        // 创建表格模型
-        String[] columnNames = {"日期", "时间", 
-            "第一组", "姓名", "卡号",
-            "第二组", "姓名", "卡号",
-            "第三组", "姓名", "卡号",
-            "第四组", "姓名", "卡号",
-            "第五组", "姓名", "卡号"};
-        DefaultTableModel model = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
-            }
-        };
-        
-        // 添加数据到表格
-        for (NumberRecord record : history) {
-            Object[] row = new Object[17]; // 2 + (3 * 5) = 17列
-            row[0] = record.getDate();
-            row[1] = record.getTime();
-            int[][] numbers = record.getNumbers();
-            for (int i = 0; i < 5; i++) {
-                int baseIndex = 2 + (i * 3);
-                row[baseIndex] = numbers[i][0] + " - " + numbers[i][1];
-                String name = record.getName(i);
-                String cardId = record.getCardId(i);
-                if ((name != null && !name.isEmpty()) || (cardId != null && !cardId.isEmpty())) {
-                    row[baseIndex + 1] = name != null ? name : "";
-                    row[baseIndex + 2] = cardId != null ? cardId : "";
-                } else {
-                    row[baseIndex + 1] = "点击补登";
-                    row[baseIndex + 2] = "";
-                }
-            }
-            model.addRow(row);
-        }
+        // 创建表格模型，单元格按需从记录生成
+        model = new HistoryTableModel(history, DrawLayout.current());
         
         // 创建表格
         table = new JTable(model);
@@ -117,9 +121,9 @@ public class HistoryDialog extends JDialog {
                     boolean isSelected, boolean hasFocus, int row, int column) {
                 Component c = super.getTableCellRendererComponent(table, value, isSelected, hasFocus, row, column);
                 
-                // 检查是否是姓名列（4, 7, 10, 13, 16）
-                if (column == 3 || column == 6 || column == 9 || column == 12 || column == 15) {
-                    if ("点击补登".equals(value)) {
+                // 检查是否是姓名列（3, 6, 9, ...）
+                if (isNameColumn(column)) {
+                    if (HistoryTableModel.REGISTER_HINT.equals(value)) {
                         setForeground(new Color(24, 144, 255));
                         setFont(getFont().deriveFont(Font.BOLD));
                     } else {
@@ -141,10 +145,10 @@ public class HistoryDialog extends JDialog {
                 int col = table.columnAtPoint(e.getPoint());
                 
                 // 检查是否点击了姓名列
-                if (row >= 0 && (col == 3 || col == 6 || col == 9 || col == 12 || col == 15)) {
+                if (row >= 0 && isNameColumn(col)) {
                     int groupIndex = (col - 3) / 3;  // 计算组索引
                     String currentName = (String)table.getValueAt(row, col);
-                    if ("点击补登".equals(currentName)) {
+                    if (HistoryTableModel.REGISTER_HINT.equals(currentName)) {
                         showRegisterDialog(row, groupIndex);
                     }
                 }
@@ -162,8 +166,9 @@ public class HistoryDialog extends JDialog {
         // 设置列宽
         table.getColumnModel().getColumn(0).setPreferredWidth(100); // 日期列
         table.getColumnModel().getColumn(1).setPreferredWidth(80);  // 时间列
-        for (int i = 2; i < 7; i++) {
-            table.getColumnModel().getColumn(i).setPreferredWidth(70); // 数字列
+        int groupCount = DrawLayout.current().getGroupCount();
+        for (int g = 0; g < groupCount; g++) {
+            table.getColumnModel().getColumn(2 + g * 3).setPreferredWidth(70); // 数字列
         }
         
         // 居中对齐所有列
@@ -194,8 +199,39 @@ public class HistoryDialog extends JDialog {
             KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0),
             JComponent.WHEN_IN_FOCUSED_WINDOW
         );
+
+        // 表格只持有打开时的快照，记录条数变化时换成新快照
+        refreshTimer = new Timer(REFRESH_MILLIS, e -> {
+            if (DataManager.getHistorySize() != model.getRecordCount()) {
+                applySearch();
+            }
+        });
+        refreshTimer.start();
+    }
+
+    @Override
+    public void dispose() {
+        refreshTimer.stop();
+        super.dispose();
     }
     
+    // 用索引查出匹配的记录下标，表格只换一个行号数组
+    // 快照在搜索之后获取，搜到的下标一定都在快照范围内
+    private void applySearch() {
+        String prefix = searchField.getText().trim();
+        int[] rows = prefix.isEmpty() ? null : DataManager.searchByPrefix(prefix, SEARCH_LIMIT + 1);
+        boolean truncated = rows != null && rows.length > SEARCH_LIMIT;
+        if (truncated) {
+            rows = Arrays.copyOf(rows, SEARCH_LIMIT);
+        }
+        model.update(DataManager.getHistory(), rows);
+        countLabel.setText(truncated ? "前 " + SEARCH_LIMIT + " 条，请继续输入" : "共 " + model.getRowCount() + " 条");
+    }
+
+    private static boolean isNameColumn(int column) {
+        return column >= 3 && (column - 3) % 3 == 0;
+    }
+
     private void styleButton(JButton button, Color backgroundColor) {
         button.setFont(new Font("微软雅黑", Font.PLAIN, 14));
         button.setBackground(backgroundColor);
@@ -234,40 +270,37 @@ public class HistoryDialog extends JDialog {
         
         if (fileChooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
+            JfrEvents.ExportHistory event = new JfrEvents.ExportHistory();
+            event.begin();
             try (OutputStreamWriter writer = new OutputStreamWriter(
                     new FileOutputStream(file), "UTF-8")) {
                 // 写入 BOM
                 writer.write('\ufeff');
                 
                 // 写入表头
-                writer.write("日期,时间," +
-                    "第一组,姓名,卡号," +
-                    "第二组,姓名,卡号," +
-                    "第三组,姓名,卡号," +
-                    "第四组,姓名,卡号," +
-                    "第五组,姓名,卡号\n");
+                writer.write(DrawLayout.current().csvHeader() + "\n");
                 
                 // 写入数据
                 for (NumberRecord record : history) {
                     StringBuilder line = new StringBuilder();
                     line.append(record.getDate()).append(",");
                     line.append(record.getTime()).append(",");
-                    int[][] numbers = record.getNumbers();
-                    for (int i = 0; i < 5; i++) {
-                        line.append(numbers[i][0]).append("-").append(numbers[i][1]).append(",");
-                        line.append(record.getName(i) != null ? record.getName(i) : "").append(",");
-                        line.append(record.getCardId(i) != null ? record.getCardId(i) : "");
-                        if (i < 4) line.append(",");
-                    }
+                    DataManager.appendCsvGroups(line, record);
                     line.append("\n");
                     writer.write(line.toString());
                 }
+                writer.flush();
+                event.success = true;
+                event.records = history.size();
+                event.bytes = file.length();
+                event.commit();
                 
                 JOptionPane.showMessageDialog(this, 
                     "导出成功！\n文件保存在：" + file.getAbsolutePath(),
                     "导出完成",
                     JOptionPane.INFORMATION_MESSAGE);
             } catch (IOException e) {
+                event.commit();
                 JOptionPane.showMessageDialog(this,
                     "导出失败：" + e.getMessage(),
                     "错误",
@@ -277,6 +310,8 @@ public class HistoryDialog extends JDialog {
     }
 
     private void showRegisterDialog(int row, int groupIndex) {
+        // 补登窗口打开期间表格可能因新记录刷新，先记下要补登的记录
+        NumberRecord record = model.getRecord(row);
         JDialog dialog = new JDialog(this, "补登信息", true);
         dialog.setUndecorated(true);
         
@@ -336,18 +371,14 @@ public class HistoryDialog extends JDialog {
         JButton confirmButton = new JButton("确认");
         styleDialogButton(confirmButton, new Color(24, 144, 255), Color.WHITE);
         confirmButton.addActionListener(e -> {
-            // 更新数据
-            NumberRecord record = historyData.get(row);
-            record.addRegistration(groupIndex, nameField.getText(), cardIdField.getText());
-            DataManager.updateRecord(record);
-            
-            // 更新表格显示
-            int baseIndex = 2 + (groupIndex * 3);
-            table.setValueAt(nameField.getText(), row, baseIndex + 1);
-            table.setValueAt(cardIdField.getText(), row, baseIndex + 2);
+            // 在 DataManager 的锁内补登，HTTP 线程可能同时读写同一条记录
+            NumberRecord updated = DataManager.register(record.getSequence(), groupIndex,
+                nameField.getText(), cardIdField.getText());
             
-            // 刷新表格
-            table.repaint();
+            // 表格直接读取记录，通知该行重绘即可
+            if (updated != null) {
+                model.recordUpdated(updated);
+            }
             
             dialog.dispose();
         });
@@ -0,0 +1,231 @@
+package src;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// 历史记录的内存索引：姓名、卡号用哈希表，抽取日期用 TreeMap，
+// 另有一个按小写姓名/卡号排序的 TreeMap 用于前缀搜索
+// 索引项只保存记录序号（即在历史记录列表中的下标）
+// 补登改名后旧的姓名/卡号索引项不删除，查询时再对照记录过滤，因此更新只需追加
+// 非线程安全，由 DataManager 的锁保护
+final class HistoryIndex {
+    private static final int BUILD_CHUNK = 64 * 1024;
+
+    private final Map<String, Postings> byName = new HashMap<>();
+    private final Map<String, Postings> byCardId = new HashMap<>();
+    private final TreeMap<LocalDate, Postings> byDate = new TreeMap<>();
+    private final TreeMap<String, Postings> byPrefix = new TreeMap<>();  // 姓名和卡号混在一起，键为小写
+    private final BitSet updated = new BitSet();  // 补登过的记录，只有它们可能有过期的索引项
+
+    // 并行建立索引：每段记录各建一份，再按顺序合并
+    static HistoryIndex build(List<NumberRecord> records) {
+        int chunks = (records.size() + BUILD_CHUNK - 1) / BUILD_CHUNK;
+        List<HistoryIndex> parts = IntStream.range(0, chunks).parallel()
+            .mapToObj(c -> {
+                HistoryIndex part = new HistoryIndex();
+                int end = Math.min(records.size(), (c + 1) * BUILD_CHUNK);
+                for (int i = c * BUILD_CHUNK; i < end; i++) {
+                    part.add(records.get(i));
+                }
+                return part;
+            })
+            .collect(Collectors.toList());
+        HistoryIndex index = new HistoryIndex();
+        for (HistoryIndex part : parts) {
+            index.merge(part);
+        }
+        return index;
+    }
+
+    // 新增记录：索引日期和已有的登记信息
+    void add(NumberRecord record) {
+        posting(byDate, record.getDateTime().toLocalDate()).add(record.getSequence());
+        addRegistrations(record);
+    }
+
+    // 补登：追加当前的姓名和卡号
+    void update(NumberRecord record) {
+        updated.set(record.getSequence());
+        addRegistrations(record);
+    }
+
+    private void addRegistrations(NumberRecord record) {
+        int seq = record.getSequence();
+        for (int g = 0; g < record.getNumbers().length; g++) {
+            String name = record.getName(g);
+            if (name != null && !name.isEmpty()) {
+                posting(byName, name).add(seq);
+                posting(byPrefix, name.toLowerCase(Locale.ROOT)).add(seq);
+            }
+            String cardId = record.getCardId(g);
+            if (cardId != null && !cardId.isEmpty()) {
+                posting(byCardId, cardId).add(seq);
+                posting(byPrefix, cardId.toLowerCase(Locale.ROOT)).add(seq);
+            }
+        }
+    }
+
+    // 返回按序号排序的记录序号
+    int[] findByName(String name, List<NumberRecord> records) {
+        return verified(byName.get(name), records, name, true);
+    }
+
+    int[] findByCardId(String cardId, List<NumberRecord> records) {
+        return verified(byCardId.get(cardId), records, cardId, false);
+    }
+
+    // 姓名或卡号以 prefix 开头（不区分大小写）的记录，按序号排序
+    // 只遍历 TreeMap 中前缀范围内的键，只有补登过的记录才回头核对；用 BitSet 去重，结果天然有序
+    int[] findByPrefix(String prefix, List<NumberRecord> records) {
+        return findByPrefix(prefix, records, Integer.MAX_VALUE);
+    }
+
+    // 同上，找到 limit 条就停止遍历：一两个字的前缀可能匹配几乎全部记录，逐字搜索时不能每次都走完
+    // 结果是按键顺序最先找到的 limit 条，再按序号排序
+    int[] findByPrefix(String prefix, List<NumberRecord> records, int limit) {
+        String key = prefix.toLowerCase(Locale.ROOT);
+        SortedMap<String, Postings> range = byPrefix.subMap(key, key + Character.MAX_VALUE);
+        BitSet hits = new BitSet();
+        int count = 0;
+        for (Postings postings : range.values()) {
+            for (int i = 0; i < postings.size && count < limit; i++) {
+                int seq = postings.values[i];
+                if (seq < records.size() && !hits.get(seq)
+                        && (!updated.get(seq) || matchesPrefix(records.get(seq), prefix))) {
+                    hits.set(seq);
+                    count++;
+                }
+            }
+            if (count >= limit) {
+                break;
+            }
+        }
+        int[] result = new int[count];
+        for (int i = 0, seq = hits.nextSetBit(0); seq >= 0; seq = hits.nextSetBit(seq + 1)) {
+            result[i++] = seq;
+        }
+        return result;
+    }
+
+    // 日期在 [from, to] 之间的记录
+    int[] findByDate(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            return new int[0];
+        }
+        NavigableMap<LocalDate, Postings> range = byDate.subMap(from, true, to, true);
+        int total = 0;
+        for (Postings postings : range.values()) {
+            total += postings.size;
+        }
+        int[] result = new int[total];
+        int pos = 0;
+        for (Postings postings : range.values()) {
+            System.arraycopy(postings.values, 0, result, pos, postings.size);
+            pos += postings.size;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void merge(HistoryIndex other) {
+        mergeInto(byName, other.byName);
+        mergeInto(byCardId, other.byCardId);
+        mergeInto(byDate, other.byDate);
+        mergeInto(byPrefix, other.byPrefix);
+        updated.or(other.updated);
+    }
+
+    private static <K> void mergeInto(Map<K, Postings> target, Map<K, Postings> source) {
+        for (Map.Entry<K, Postings> entry : source.entrySet()) {
+            Postings existing = target.get(entry.getKey());
+            if (existing == null) {
+                target.put(entry.getKey(), entry.getValue());
+            } else {
+                existing.addAll(entry.getValue());
+            }
+        }
+    }
+
+    private static <K> Postings posting(Map<K, Postings> map, K key) {
+        return map.computeIfAbsent(key, k -> new Postings());
+    }
+
+    // 去掉已被补登覆盖的索引项和重复项
+    private static int[] verified(Postings postings, List<NumberRecord> records, String key, boolean name) {
+        if (postings == null) {
+            return new int[0];
+        }
+        int[] result = new int[postings.size];
+        int count = 0;
+        for (int i = 0; i < postings.size; i++) {
+            int seq = postings.values[i];
+            if (seq >= 0 && seq < records.size() && matches(records.get(seq), key, name)) {
+                result[count++] = seq;
+            }
+        }
+        Arrays.sort(result, 0, count);
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || result[unique - 1] != result[i]) {
+                result[unique++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, unique);
+    }
+
+    private static boolean matches(NumberRecord record, String key, boolean name) {
+        for (int g = 0; g < record.getNumbers().length; g++) {
+            if (key.equals(name ? record.getName(g) : record.getCardId(g))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matchesPrefix(NumberRecord record, String prefix) {
+        for (int g = 0; g < record.getNumbers().length; g++) {
+            if (startsWithIgnoreCase(record.getName(g), prefix) || startsWithIgnoreCase(record.getCardId(g), prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean startsWithIgnoreCase(String value, String prefix) {
+        return value != null && value.regionMatches(true, 0, prefix, 0, prefix.length());
+    }
+
+    // 可增长的 int 序号列表
+    private static final class Postings {
+        int[] values = new int[2];
+        int size;
+
+        void add(int seq) {
+            if (size > 0 && values[size - 1] == seq) {
+                return;  // 同一条记录的多组登记了同一个值
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = seq;
+        }
+
+        void addAll(Postings other) {
+            if (size + other.size > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + other.size));
+            }
+            System.arraycopy(other.values, 0, values, size, other.size);
+            size += other.size;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package src;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+
+// 只追加的历史记录列表，由 DataManager 持有锁追加
+// snapshot() 返回当时前 n 条的只读视图，不复制记录：已写入的槽位不再改动，扩容时换新数组，
+// 所以快照可以交给界面线程不加锁地遍历，HTTP 线程之后的追加不会引起 ConcurrentModificationException
+final class HistoryLog extends AbstractList<NumberRecord> implements RandomAccess {
+    private NumberRecord[] records = new NumberRecord[1024];
+    private int size;
+
+    @Override
+    public boolean add(NumberRecord record) {
+        if (size == records.length) {
+            records = Arrays.copyOf(records, size * 2);
+        }
+        records[size++] = record;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public NumberRecord get(int index) {
+        Objects.checkIndex(index, size);
+        return records[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // 调用方持有 DataManager 的锁，取得快照后可在任意线程使用
+    List<NumberRecord> snapshot() {
+        return new Snapshot(records, size);
+    }
+
+    private static final class Snapshot extends AbstractList<NumberRecord> implements RandomAccess {
+        private final NumberRecord[] records;
+        private final int size;
+
+        Snapshot(NumberRecord[] records, int size) {
+            this.records = records;
+            this.size = size;
+        }
+
+        @Override
+        public NumberRecord get(int index) {
+            Objects.checkIndex(index, size);
+            return records[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package src;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.List;
+
+// 历史记录表格模型：引用 DataManager 的记录快照，单元格在绘制时才生成
+// 打开对话框不复制记录，耗时和内存都与记录条数无关
+// 搜索时只替换一个行号数组，不复制也不逐行过滤记录；有新记录时换成新的快照
+@SuppressWarnings("serial")  // 引用记录快照，不会序列化
+class HistoryTableModel extends AbstractTableModel {
+    static final String REGISTER_HINT = "点击补登";
+
+    private List<NumberRecord> records;
+    private final String[] columnNames;
+    private int[] rows;  // 当前显示的记录下标，null 表示显示全部
+
+    HistoryTableModel(List<NumberRecord> records, DrawLayout layout) {
+        this.records = records;
+        this.columnNames = layout.columnNames();
+    }
+
+    NumberRecord getRecord(int row) {
+        return records.get(rows != null ? rows[row] : row);
+    }
+
+    int getRecordCount() {
+        return records.size();
+    }
+
+    // 换成新的快照，只显示指定下标的记录，rows 为 null 时显示全部
+    // 不带搜索条件且只是多了新记录时只通知插入的行，表格保持选中和滚动位置
+    void update(List<NumberRecord> records, int[] rows) {
+        int oldSize = this.records.size();
+        boolean appendOnly = rows == null && this.rows == null && records.size() >= oldSize;
+        this.records = records;
+        this.rows = rows;
+        if (!appendOnly) {
+            fireTableDataChanged();
+        } else if (records.size() > oldSize) {
+            fireTableRowsInserted(oldSize, records.size() - 1);
+        }
+    }
+
+    // 补登后通知表格重绘该记录所在的行；记录的序号就是它在快照中的下标
+    void recordUpdated(NumberRecord record) {
+        int seq = record.getSequence();
+        int row = -1;
+        if (rows == null) {
+            row = seq >= 0 && seq < records.size() ? seq : -1;
+        } else {
+            for (int i = 0; i < rows.length && row < 0; i++) {
+                if (rows[i] == seq) {
+                    row = i;
+                }
+            }
+        }
+        if (row >= 0) {
+            fireTableRowsUpdated(row, row);
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows != null ? rows.length : records.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return columnNames[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return String.class;
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    // 列顺序：日期, 时间, 然后每组 数字, 姓名, 卡号
+    @Override
+    public Object getValueAt(int row, int column) {
+        NumberRecord record = getRecord(row);
+        if (column == 0) {
+            return record.getDate();
+        }
+        if (column == 1) {
+            return record.getTime();
+        }
+        int group = (column - 2) / 3;
+        switch ((column - 2) % 3) {
+            case 0:
+                return formatGroup(record.getNumbers()[group]);
+            case 1:
+                return isRegistered(record, group) ? nullToEmpty(record.getName(group)) : REGISTER_HINT;
+            default:
+                return nullToEmpty(record.getCardId(group));
+        }
+    }
+
+    private static boolean isRegistered(NumberRecord record, int group) {
+        String name = record.getName(group);
+        String cardId = record.getCardId(group);
+        return (name != null && !name.isEmpty()) || (cardId != null && !cardId.isEmpty());
+    }
+
+    private static String nullToEmpty(String value) {
+        return value != null ? value : "";
+    }
+
+    private static String formatGroup(int[] group) {
+        StringBuilder sb = new StringBuilder();
+        for (int k = 0; k < group.length; k++) {
+            if (k > 0) sb.append(" - ");
+            sb.append(group[k]);
+        }
+        return sb.toString();
+    }
+}
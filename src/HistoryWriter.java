@@ -0,0 +1,276 @@
+package src;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+// 历史记录的后台写入线程（write-behind）
+// 调用方只把新增/补登放进有界队列后立即返回；写入线程每次取走队列中积压的全部操作，
+// 合并同一条记录的重复补登后写入 MappedHistoryStore
+// 存储只由这个线程访问
+// 调用方可能持有 DataManager 的锁，所以入队从不等待：队列满时放进溢出列表，由写入线程随队列一起取走
+// 溢出列表同样有上限，已在其中的记录的补登直接合并；超过上限说明磁盘长时间跟不上，
+// 之后的操作一律拒绝并提示一次（丢掉一条新增后，后面的序号都接不上了）
+// 单个操作失败只输出提示，不会让写入线程退出；线程因意外退出时，等待中的 flush 以异常结束
+class HistoryWriter {
+    static final int QUEUE_CAPACITY = 4096;
+    static final int OVERFLOW_CAPACITY = 4 * QUEUE_CAPACITY;
+
+    private static final char APPEND = 'A';
+    private static final char UPDATE = 'U';
+    private static final char FLUSH = 'F';
+    private static final char STOP = 'S';
+
+    private static final class Op {
+        final char type;
+        final NumberRecord record;
+        final CompletableFuture<Void> done;
+
+        Op(char type, NumberRecord record, CompletableFuture<Void> done) {
+            this.type = type;
+            this.record = record;
+            this.done = done;
+        }
+    }
+
+    private final MappedHistoryStore store;
+    private final BlockingQueue<Op> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Queue<Op> overflow = new ArrayDeque<>();  // 队列满后的操作，按 this 加锁；不为空时新操作也排在这里，保持顺序
+    private final Set<NumberRecord> overflowRecords = new HashSet<>();  // 溢出列表中新增或补登的记录，按 this 加锁
+    private final Thread thread;
+    private volatile boolean stopped;  // 写入线程已退出，之后的操作不再写入
+    private volatile boolean rejecting;  // 溢出列表已满，之后的操作不再写入
+
+    // 统计：只有写入线程修改，volatile 保证读取方看到最新值
+    private volatile long flushCount;
+    private volatile long entriesWritten;
+    private volatile long entriesCoalesced;
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile long totalFlushNanos;
+    private volatile long storedBytes;
+    private final AtomicLong queueFullCount = new AtomicLong();  // 由调用方线程累加
+
+    HistoryWriter(MappedHistoryStore store) {
+        this.store = store;
+        this.thread = new Thread(this::run, "history-writer");
+        thread.setDaemon(true);
+        thread.start();
+        // 退出前把队列中剩余的操作写完
+        Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "history-writer-shutdown"));
+    }
+
+    void append(NumberRecord record) {
+        enqueue(new Op(APPEND, record, null));
+    }
+
+    void update(NumberRecord record) {
+        enqueue(new Op(UPDATE, record, null));
+    }
+
+    // 等待此前入队的操作全部写入并刷到磁盘
+    CompletableFuture<Void> flush() {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        enqueue(new Op(FLUSH, null, done));
+        return done;
+    }
+
+    void shutdown() {
+        if (stopped) {
+            return;
+        }
+        enqueue(new Op(STOP, null, null));
+        try {
+            thread.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // 最近一批写入之后存储中的数据字节数
+    long getStoredBytes() {
+        return storedBytes;
+    }
+
+    PersistenceStats getStats() {
+        int depth;
+        synchronized (this) {
+            depth = queue.size() + overflow.size();
+        }
+        return new PersistenceStats(depth, flushCount, entriesWritten, entriesCoalesced,
+            queueFullCount.get(), lastFlushNanos, maxFlushNanos, totalFlushNanos);
+    }
+
+    // 写入已停止或积压过多时的提示，正常时为 null
+    String getError() {
+        if (rejecting) {
+            return "历史记录写入跟不上，积压超过 " + (QUEUE_CAPACITY + OVERFLOW_CAPACITY) + " 条，之后的抽取结果不会保存到磁盘。";
+        }
+        return stopped ? "历史记录写入线程已停止，之后的抽取结果不会保存到磁盘。" : null;
+    }
+
+    private synchronized void enqueue(Op op) {
+        if (stopped) {
+            fail(op, new IllegalStateException("历史记录写入线程已停止"));
+            return;
+        }
+        if (rejecting && op.type != STOP) {
+            fail(op, new IllegalStateException("历史记录写入队列已满"));
+            return;
+        }
+        if (overflow.isEmpty() && queue.offer(op)) {
+            return;
+        }
+        // 队列已满说明磁盘跟不上；调用方可能持有 DataManager 的锁，不能在这里等待
+        queueFullCount.incrementAndGet();
+        if (op.type == UPDATE && overflowRecords.contains(op.record)) {
+            return;  // 写入时读取的是记录的最新状态，已在排队的记录不必再排一次
+        }
+        if (overflow.size() >= OVERFLOW_CAPACITY && op.type != STOP) {
+            rejecting = true;
+            System.out.println(getError());
+            fail(op, new IllegalStateException("历史记录写入队列已满"));
+            return;
+        }
+        overflow.add(op);
+        if (op.record != null) {
+            overflowRecords.add(op.record);
+        }
+    }
+
+    // 队列中的操作总是早于溢出列表中的操作，两者在同一把锁内一起取走
+    private synchronized void drainTo(List<Op> batch) {
+        queue.drainTo(batch);
+        batch.addAll(overflow);
+        overflow.clear();
+        overflowRecords.clear();
+    }
+
+    private static void fail(Op op, Throwable cause) {
+        if (op.done != null) {
+            op.done.completeExceptionally(cause);
+        }
+    }
+
+    private void run() {
+        List<Op> batch = new ArrayList<>();
+        try {
+            process(batch);
+        } catch (RuntimeException | Error e) {
+            System.out.println("历史记录写入线程意外停止: " + e);
+            throw e;
+        } finally {
+            // 之后入队的操作直接失败；已取走和还在队列中的 flush 以异常结束，saveHistory 不会一直等待
+            List<Op> pending = new ArrayList<>(batch);
+            synchronized (this) {
+                stopped = true;
+                drainTo(pending);
+            }
+            IllegalStateException cause = new IllegalStateException("历史记录写入线程已停止");
+            for (Op op : pending) {
+                fail(op, cause);
+            }
+        }
+    }
+
+    private void process(List<Op> batch) {
+        Set<NumberRecord> written = new HashSet<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            drainTo(batch);
+
+            JfrEvents.HistoryWrite event = new JfrEvents.HistoryWrite();
+            event.begin();
+            long start = System.nanoTime();
+            int lines = 0;
+            int coalesced = 0;
+            boolean forced = false;
+            boolean stop = false;
+            written.clear();
+            for (Op op : batch) {
+                switch (op.type) {
+                    case APPEND:
+                    case UPDATE:
+                        // 写入时读取的已是记录的最新状态，同一批里同一条记录只写一次
+                        if (op.type == UPDATE && written.contains(op.record)) {
+                            coalesced++;
+                        } else {
+                            write(op.type, op.record);
+                            written.add(op.record);
+                            lines++;
+                        }
+                        break;
+                    case FLUSH:
+                        try {
+                            store.force();
+                            forced = true;
+                            storedBytes = store.dataSize();
+                            op.done.complete(null);
+                        } catch (RuntimeException e) {
+                            // MappedByteBuffer.force 以 UncheckedIOException 报告磁盘错误
+                            System.out.println("保存历史记录失败: " + e.getMessage());
+                            op.done.completeExceptionally(e);
+                        }
+                        break;
+                    case STOP:
+                        stop = true;
+                        break;
+                }
+            }
+            batch.clear();
+            entriesCoalesced += coalesced;
+            storedBytes = store.dataSize();
+
+            if (lines > 0 || forced) {
+                event.records = lines;
+                event.coalesced = coalesced;
+                event.forced = forced;
+                event.bytes = storedBytes;
+                event.commit();
+            }
+            if (lines > 0) {
+                long elapsed = System.nanoTime() - start;
+                flushCount++;
+                entriesWritten += lines;
+                lastFlushNanos = elapsed;
+                totalFlushNanos += elapsed;
+                if (elapsed > maxFlushNanos) {
+                    maxFlushNanos = elapsed;
+                }
+            }
+            if (stop) {
+                try {
+                    store.close();
+                } catch (IOException | RuntimeException e) {
+                    System.out.println("关闭历史记录失败: " + e.getMessage());
+                }
+                return;
+            }
+        }
+    }
+
+    private void write(char type, NumberRecord record) {
+        try {
+            if (type == APPEND) {
+                store.write(record);
+            } else {
+                store.writeRegistrations(record);
+            }
+        } catch (IOException | RuntimeException e) {
+            // 一条记录写不进去不影响后面的记录
+            System.out.println("写入历史记录失败: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package src;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+// 自定义 JFR 事件：抽取、抽取动画、历史记录加载/写入/保存、导出和音效播放
+// 不开启录制时 begin/commit 几乎没有开销；在自助机上可以长期开着低开销录制：
+//   java -XX:StartFlightRecording=filename=rns.jfr,maxage=1d,dumponexit=true -cp out src.RandomNumberSelector
+//   jfr print --events rns.Draw,rns.Animation,rns.HistoryWrite rns.jfr
+final class JfrEvents {
+    private static final String CATEGORY = "随机数字选择器";
+
+    private JfrEvents() {
+    }
+
+    @Name("rns.Draw")
+    @Label("抽取")
+    @Category(CATEGORY)
+    static final class Draw extends Event {
+        @Label("来源")
+        @Description("界面或 HTTP")
+        String source;
+
+        @Label("组数")
+        int groups;
+
+        @Label("数字个数")
+        int numbers;
+
+        @Label("随机数算法")
+        String algorithm;
+    }
+
+    @Name("rns.Animation")
+    @Label("抽取动画")
+    @Description("从第一帧到显示正式结果")
+    @Category(CATEGORY)
+    static final class Animation extends Event {
+        @Label("显示帧数")
+        int rendered;
+
+        @Label("丢弃帧数")
+        long dropped;
+
+        @Label("最长帧间隔")
+        @Timespan(Timespan.NANOSECONDS)
+        long worstFrame;
+    }
+
+    @Name("rns.LoadHistory")
+    @Label("加载历史记录")
+    @Description("打开存储、读取全部记录（含旧 CSV 导入）并建立索引和统计")
+    @Category(CATEGORY)
+    static final class LoadHistory extends Event {
+        @Label("记录数")
+        int records;
+
+        @Label("数据大小")
+        @DataAmount
+        long bytes;
+
+        @Label("导入旧数据")
+        boolean importedLegacy;
+    }
+
+    @Name("rns.SaveHistory")
+    @Label("保存历史记录")
+    @Description("等待此前的新增和补登全部写入并刷到磁盘")
+    @Category(CATEGORY)
+    static final class SaveHistory extends Event {
+        @Label("记录数")
+        int records;
+
+        @Label("数据大小")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("rns.HistoryWrite")
+    @Label("写入历史记录")
+    @Description("后台写入线程处理一批新增和补登")
+    @Category(CATEGORY)
+    static final class HistoryWrite extends Event {
+        @Label("写入记录数")
+        int records;
+
+        @Label("合并的补登数")
+        int coalesced;
+
+        @Label("刷到磁盘")
+        boolean forced;
+
+        @Label("数据大小")
+        @DataAmount
+        long bytes;
+    }
+
+    @Name("rns.ExportHistory")
+    @Label("导出历史记录")
+    @Category(CATEGORY)
+    static final class ExportHistory extends Event {
+        @Label("记录数")
+        int records;
+
+        @Label("文件大小")
+        @DataAmount
+        long bytes;
+
+        @Label("成功")
+        boolean success;
+    }
+
+    @Name("rns.PlaySound")
+    @Label("播放音效")
+    @Description("把音效放入混音队列，不含播放本身的时长")
+    @Category(CATEGORY)
+    static final class PlaySound extends Event {
+        @Label("音效文件")
+        String sound;
+
+        @Label("音频数据大小")
+        @DataAmount
+        long bytes;
+    }
+}
@@ -0,0 +1,85 @@
+package src;
+
+import java.awt.*;
+
+// NumberBoard 在某个尺寸下的布局：各框、数字格、分隔符的位置和对应字号的字形图集
+// 创建后不再修改，NumberBoard 按尺寸缓存，窗口回到用过的尺寸时直接复用
+final class LayoutMetrics {
+    static final int GAP = 30;
+    static final int BORDER = 2;
+    private static final Insets PADDING = new Insets(15, 15, 25, 15);
+    private static final int TEXT_LIFT = 10;  // 数字略微上移，与原来标签的底部边距一致
+    static final String SEPARATOR = "·";
+
+    final int width;
+    final int height;
+    final Rectangle[] boxes;
+    final Rectangle[] cells;       // [g * pick + k]
+    final Rectangle[] separators;  // [g * (pick - 1) + k]
+    final GlyphAtlas atlas;
+
+    LayoutMetrics(Component component, int width, int height, int groupCount, int pick, int topCount, int maxValue,
+                  Font baseFont, Color numberColor, Color separatorColor) {
+        this.width = width;
+        this.height = height;
+        boxes = new Rectangle[groupCount];
+        cells = new Rectangle[groupCount * pick];
+        separators = new Rectangle[groupCount * Math.max(0, pick - 1)];
+
+        int rows = groupCount > topCount ? 2 : 1;
+        int boxWidth = Math.min((width - (topCount - 1) * GAP) / topCount, (height - (rows - 1) * GAP) / rows * 4 / 3);
+        boxWidth = Math.max(boxWidth, 1);
+        int boxHeight = boxWidth * 3 / 4;
+        int top = (height - rows * boxHeight - (rows - 1) * GAP) / 2;
+        for (int g = 0; g < groupCount; g++) {
+            boolean topRow = g < topCount;
+            int inRow = topRow ? topCount : groupCount - topCount;
+            int column = topRow ? g : g - topCount;
+            int left = (width - inRow * boxWidth - (inRow - 1) * GAP) / 2;
+            boxes[g] = new Rectangle(left + column * (boxWidth + GAP), top + (topRow ? 0 : boxHeight + GAP), boxWidth, boxHeight);
+        }
+
+        // 字体先按可用高度取，再按一行数字和分隔符的总宽度缩小
+        int innerWidth = Math.max(1, boxWidth - 2 * BORDER - PADDING.left - PADDING.right);
+        int innerHeight = Math.max(1, boxHeight - 2 * BORDER - PADDING.top - PADDING.bottom - TEXT_LIFT);
+        String widest = String.valueOf(maxValue).replaceAll("\\d", "8");
+        int size = innerHeight;
+        // 分隔符和数字用同一个粗体字体，与原来的标签一致
+        Font numberFont = baseFont;
+        FontMetrics numberMetrics = null;
+        for (int pass = 0; pass < 3; pass++) {
+            numberFont = GlyphAtlas.font(baseFont, size);
+            numberMetrics = component.getFontMetrics(numberFont);
+            if (pass == 2) {
+                break;
+            }
+            int needed = pick * numberMetrics.stringWidth(widest) + (pick - 1) * separatorWidth(numberMetrics);
+            double scale = Math.min(innerHeight / (double) (numberMetrics.getAscent() + numberMetrics.getDescent()),
+                innerWidth / (double) Math.max(1, needed));
+            size = Math.max(1, (int) Math.floor(size * Math.min(1.0, scale)));
+        }
+        atlas = new GlyphAtlas(component.getGraphicsConfiguration(), numberFont, numberColor,
+            numberFont, separatorColor, SEPARATOR, maxValue, component.getBackground());
+
+        // 分隔符固定宽度，数字格平分剩余宽度
+        int separatorWidth = pick > 1 ? separatorWidth(numberMetrics) : 0;
+        int cellWidth = Math.max(1, (innerWidth - (pick - 1) * separatorWidth) / pick);
+        for (int g = 0; g < groupCount; g++) {
+            Rectangle box = boxes[g];
+            int x = box.x + BORDER + PADDING.left + (innerWidth - pick * cellWidth - (pick - 1) * separatorWidth) / 2;
+            int y = box.y + BORDER + PADDING.top;
+            for (int k = 0; k < pick; k++) {
+                if (k > 0) {
+                    separators[g * (pick - 1) + k - 1] = new Rectangle(x, y, separatorWidth, innerHeight);
+                    x += separatorWidth;
+                }
+                cells[g * pick + k] = new Rectangle(x, y, cellWidth, innerHeight);
+                x += cellWidth;
+            }
+        }
+    }
+
+    private static int separatorWidth(FontMetrics metrics) {
+        return metrics.stringWidth(SEPARATOR) * 3;
+    }
+}
@@ -0,0 +1,348 @@
+package src;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// 二进制历史记录存储，通过 FileChannel.map 直接读写
+//
+// 记录文件（history.bin）：64 字节文件头 + 定长记录
+//   文件头：魔数、版本、组数、每组个数、已提交记录数
+//   记录：抽取时间（long，本地时间按 UTC 换算的秒数）+ 各组数字（short）+ 每组姓名、卡号在字符串堆中的偏移（int，-1 表示未登记）
+// 字符串堆（history.strings）：8 字节已用长度 + 依次追加的 [int 字节数][UTF-8 字节]
+//
+// 新增记录写入下一个槽位，补登只改写该槽位的偏移，耗时都与历史记录条数无关
+// 非线程安全，只由 HistoryWriter 线程写入
+final class MappedHistoryStore implements Closeable {
+    private static final int MAGIC = 0x524E5348;  // "RNSH"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int COUNT_OFFSET = 16;
+    private static final int HEAP_HEADER_SIZE = 8;
+    private static final int NO_STRING = -1;
+    private static final long INITIAL_MAP_SIZE = 1 << 20;
+    private static final long LOCK_POSITION = Long.MAX_VALUE - 1;
+
+    private final MappedFile records;
+    private final MappedFile strings;
+    private final int groupCount;
+    private final int pickSize;
+    private final int recordSize;
+    private final int refsOffset;  // 记录内姓名/卡号偏移区的起始位置
+    private int count;
+    private long heapSize;
+
+    private MappedHistoryStore(MappedFile records, MappedFile strings, int groupCount, int pickSize) {
+        this.records = records;
+        this.strings = strings;
+        this.groupCount = groupCount;
+        this.pickSize = pickSize;
+        this.refsOffset = 8 + groupCount * pickSize * 2;
+        this.recordSize = refsOffset + groupCount * 8;
+    }
+
+    // 打开（不存在时创建）存储；文件头的分组规则与 layout 不一致或内容与文件大小不符时抛出 IOException
+    // 另一个进程（如另开的窗口、--serve 或压测程序）正在使用同一份文件时抛出 LockedException
+    static MappedHistoryStore open(File recordFile, File stringFile, DrawLayout layout) throws IOException {
+        if (layout.getMaxValue() > Short.MAX_VALUE) {
+            throw new IOException("数字范围超出二进制格式上限: " + layout.getMaxValue());
+        }
+        FileChannel recordChannel = openChannel(recordFile);
+        FileChannel stringChannel = null;
+        try {
+            // 先加锁再检查：两个进程同时追加会写进同一个槽位，互相覆盖已提交的条数
+            lock(recordChannel, recordFile);
+            boolean created = recordChannel.size() < HEADER_SIZE;
+            int count = 0;
+            if (!created) {
+                // 映射之前先用普通读取检查文件头：映射在关闭通道后仍然存在，Windows 上会导致旧文件无法改名
+                count = checkHeader(recordChannel, recordFile, layout);
+            }
+            stringChannel = openChannel(stringFile);
+            long heapSize = HEAP_HEADER_SIZE;
+            if (stringChannel.size() >= HEAP_HEADER_SIZE) {
+                heapSize = Math.max(HEAP_HEADER_SIZE, readHeader(stringChannel, HEAP_HEADER_SIZE).getLong(0));
+                if (heapSize > stringChannel.size()) {
+                    throw new IOException(stringFile + " 的已用长度 " + heapSize + " 超出文件大小");
+                }
+            }
+            MappedFile records = new MappedFile(recordChannel);
+            MappedFile strings = new MappedFile(stringChannel);
+            MappedHistoryStore store = new MappedHistoryStore(records, strings, layout.getGroupCount(), layout.getPickSize());
+            if (created) {
+                records.ensureCapacity(HEADER_SIZE);
+                MappedByteBuffer header = records.buffer;
+                header.putInt(0, MAGIC);
+                header.putInt(4, VERSION);
+                header.putInt(8, store.groupCount);
+                header.putInt(12, store.pickSize);
+                header.putInt(COUNT_OFFSET, 0);
+            }
+            store.count = count;
+            strings.ensureCapacity(HEAP_HEADER_SIZE);
+            store.heapSize = heapSize;
+            return store;
+        } catch (IOException | RuntimeException e) {
+            // 关闭通道同时释放文件锁
+            recordChannel.close();
+            if (stringChannel != null) {
+                stringChannel.close();
+            }
+            throw e;
+        }
+    }
+
+    private static FileChannel openChannel(File file) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // 只锁数据之外的一个字节：Windows 的文件锁是强制锁，锁住数据区会挡住本进程的映射读写
+    // 锁随通道关闭（包括进程退出）释放
+    private static void lock(FileChannel channel, File file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock(LOCK_POSITION, 1, false);
+        } catch (OverlappingFileLockException e) {
+            lock = null;  // 本进程已经打开了同一份文件
+        }
+        if (lock == null) {
+            throw new LockedException(file + " 正被另一个程序使用，请先关闭其他抽取窗口或 --serve 服务");
+        }
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel, int size) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(size);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // 读满文件头
+        }
+        return header;
+    }
+
+    // 返回已提交的记录数
+    private static int checkHeader(FileChannel channel, File recordFile, DrawLayout layout) throws IOException {
+        ByteBuffer header = readHeader(channel, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+            throw new IOException(recordFile + " 不是有效的历史记录文件");
+        }
+        int groups = header.getInt(8);
+        int pick = header.getInt(12);
+        if (groups != layout.getGroupCount() || pick != layout.getPickSize()) {
+            throw new IOException(recordFile + " 的分组规则（" + groups + " 组, 每组 " + pick
+                + " 个）与当前配置不一致");
+        }
+        int count = header.getInt(COUNT_OFFSET);
+        long recordSize = 8 + groups * (pick * 2L + 8);
+        if (count < 0 || HEADER_SIZE + count * recordSize > channel.size()) {
+            throw new IOException(recordFile + " 的记录数 " + count + " 与文件大小不符");
+        }
+        return count;
+    }
+
+    int size() {
+        return count;
+    }
+
+    // 两个文件中已使用的字节数（映射区域会预先扩大，文件长度不等于数据大小）
+    long dataSize() {
+        return HEADER_SIZE + (long) count * recordSize + heapSize;
+    }
+
+    // 读出全部记录，序号即槽位；字符串偏移损坏时抛出 IOException
+    List<NumberRecord> readAll() throws IOException {
+        List<NumberRecord> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(read(i));
+        }
+        return result;
+    }
+
+    NumberRecord read(int slot) throws IOException {
+        MappedByteBuffer buf = records.buffer;
+        int base = HEADER_SIZE + slot * recordSize;
+        LocalDateTime dateTime = LocalDateTime.ofEpochSecond(buf.getLong(base), 0, ZoneOffset.UTC);
+        int[][] numbers = new int[groupCount][pickSize];
+        int pos = base + 8;
+        for (int g = 0; g < groupCount; g++) {
+            for (int k = 0; k < pickSize; k++) {
+                numbers[g][k] = buf.getShort(pos);
+                pos += 2;
+            }
+        }
+        NumberRecord record = new NumberRecord(numbers, dateTime);
+        record.setSequence(slot);
+        for (int g = 0; g < groupCount; g++) {
+            int refBase = base + refsOffset + g * 8;
+            String name = readString(buf.getInt(refBase));
+            String cardId = readString(buf.getInt(refBase + 4));
+            if (name != null || cardId != null) {
+                record.addRegistration(g, name, cardId);
+            }
+        }
+        return record;
+    }
+
+    // 写入记录的全部内容；序号等于当前条数时追加，小于时覆盖原槽位
+    void write(NumberRecord record) throws IOException {
+        int slot = record.getSequence();
+        if (slot < 0 || slot > count) {
+            throw new IOException("记录序号不连续: " + slot + "，当前共 " + count + " 条");
+        }
+        int[][] numbers = record.getNumbers();
+        if (numbers.length != groupCount) {
+            throw new IOException("记录 " + slot + " 有 " + numbers.length + " 组，应为 " + groupCount + " 组");
+        }
+        for (int[] group : numbers) {
+            if (group.length != pickSize) {
+                throw new IOException("记录 " + slot + " 每组 " + group.length + " 个数字，应为 " + pickSize + " 个");
+            }
+        }
+        long end = HEADER_SIZE + (long) (slot + 1) * recordSize;
+        records.ensureCapacity(end);
+        int base = (int) (end - recordSize);
+        MappedByteBuffer buf = records.buffer;
+        buf.putLong(base, record.getDateTime().toEpochSecond(ZoneOffset.UTC));
+        int pos = base + 8;
+        for (int g = 0; g < groupCount; g++) {
+            for (int k = 0; k < pickSize; k++) {
+                buf.putShort(pos, (short) numbers[g][k]);
+                pos += 2;
+            }
+        }
+        for (int g = 0; g < groupCount; g++) {
+            int refBase = base + refsOffset + g * 8;
+            buf.putInt(refBase, appendString(record.getName(g)));
+            buf.putInt(refBase + 4, appendString(record.getCardId(g)));
+        }
+        if (slot == count) {
+            count++;
+            records.buffer.putInt(COUNT_OFFSET, count);  // 记录内容写完后再提交条数
+        }
+    }
+
+    // 只改写有变化的登记信息，新字符串追加到字符串堆
+    // 补登一般只是填写空位，被覆盖的旧字符串不回收
+    void writeRegistrations(NumberRecord record) throws IOException {
+        int slot = record.getSequence();
+        if (slot < 0 || slot >= count) {
+            throw new IOException("记录不存在: " + slot);
+        }
+        int base = HEADER_SIZE + slot * recordSize + refsOffset;
+        for (int g = 0; g < groupCount; g++) {
+            updateRef(base + g * 8, record.getName(g));
+            updateRef(base + g * 8 + 4, record.getCardId(g));
+        }
+    }
+
+    private void updateRef(int position, String value) throws IOException {
+        String current = readString(records.buffer.getInt(position));
+        String normalized = value == null || value.isEmpty() ? null : value;
+        if (normalized == null ? current != null : !normalized.equals(current)) {
+            int ref = appendString(normalized);
+            records.buffer.putInt(position, ref);
+        }
+    }
+
+    // 把映射的修改刷到磁盘
+    void force() {
+        records.buffer.force();
+        strings.buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        records.close();
+        strings.close();
+    }
+
+    private String readString(int ref) throws IOException {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        // 偏移和长度来自磁盘，文件被截断或损坏时不能直接用来分配数组
+        if (ref < HEAP_HEADER_SIZE || ref + 4L > heapSize) {
+            throw new IOException("字符串偏移 " + ref + " 超出字符串堆（共 " + heapSize + " 字节）");
+        }
+        MappedByteBuffer buf = strings.buffer;
+        int length = buf.getInt(ref);
+        if (length < 0 || ref + 4L + length > heapSize) {
+            throw new IOException("偏移 " + ref + " 处的字符串长度 " + length + " 超出字符串堆（共 " + heapSize + " 字节）");
+        }
+        byte[] bytes = new byte[length];
+        buf.get(ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int appendString(String value) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long ref = heapSize;
+        if (ref + 4 + bytes.length > Integer.MAX_VALUE) {
+            throw new IOException("字符串堆已满");
+        }
+        strings.ensureCapacity(ref + 4 + bytes.length);
+        MappedByteBuffer buf = strings.buffer;
+        buf.putInt((int) ref, bytes.length);
+        buf.put((int) ref + 4, bytes);
+        heapSize = ref + 4 + bytes.length;
+        buf.putLong(0, heapSize);
+        return (int) ref;
+    }
+
+    // 另一个进程持有文件锁，调用方不应改名或另起文件
+    static final class LockedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        LockedException(String message) {
+            super(message);
+        }
+    }
+
+    // 可增长的读写映射，容量不足时按倍数扩大文件并重新映射
+    private static final class MappedFile implements Closeable {
+        final FileChannel channel;
+        MappedByteBuffer buffer;
+
+        MappedFile(FileChannel channel) throws IOException {
+            this.channel = channel;
+            long size = channel.size();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, INITIAL_MAP_SIZE));
+        }
+
+        void ensureCapacity(long required) throws IOException {
+            if (required <= buffer.capacity()) {
+                return;
+            }
+            long capacity = buffer.capacity();
+            while (capacity < required) {
+                capacity *= 2;
+            }
+            if (capacity > Integer.MAX_VALUE) {
+                capacity = Integer.MAX_VALUE;
+                if (required > capacity) {
+                    throw new IOException("历史记录文件超过 2GB 上限");
+                }
+            }
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package src;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// 抽取结果画板：所有分组的数字框由这一个组件自己绘制，取代每帧重建的 JPanel/JLabel 树
+// 上排 topCount 个框，其余在下排居中；框的位置和字体由 LayoutMetrics 按尺寸计算
+// 数字变化时只对变化的数字格 repaint，动画帧不创建组件，也不触发 revalidate
+// 数字和分隔符从 GlyphAtlas 复制，字形只在尺寸或屏幕缩放变化时光栅化一次
+// 拖动窗口时一连串的尺寸变化合并为每帧最多一次布局计算，计算结果按尺寸缓存
+@SuppressWarnings("serial")  // 持有图集等不可序列化的缓存，不会序列化
+final class NumberBoard extends JComponent {
+    private static final Color BORDER_COLOR = new Color(200, 200, 200);
+    private static final int RESIZE_COALESCE_MILLIS = 16;  // 约 60 帧/秒
+    private static final int METRICS_CACHE_SIZE = 4;        // 每份带一张字形图集，只留最近用过的几个尺寸
+
+    private final int groupCount;
+    private final int pick;
+    private final int topCount;
+    private final int[] values;      // [g * pick + k]，0 表示空
+    private final int maxValue;
+    private final Font baseFont;
+    private final Color numberColor;
+    private final Color separatorColor;
+
+    // 按 (宽 << 32 | 高) 缓存，按访问顺序淘汰
+    private final Map<Long, LayoutMetrics> metricsCache = new LinkedHashMap<Long, LayoutMetrics>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, LayoutMetrics> eldest) {
+            return size() > METRICS_CACHE_SIZE;
+        }
+    };
+    private final Timer resizeTimer;
+    private LayoutMetrics metrics;
+
+    NumberBoard(DrawLayout layout, int topCount, Font numberFont, Color numberColor, Color separatorColor, Color background) {
+        this.groupCount = layout.getGroupCount();
+        this.pick = layout.getPickSize();
+        this.topCount = topCount;
+        this.values = new int[groupCount * pick];
+        this.maxValue = layout.getMaxValue();
+        this.baseFont = numberFont;
+        this.numberColor = numberColor;
+        this.separatorColor = separatorColor;
+        setBackground(background);
+        setOpaque(true);
+
+        // 尺寸变化先只记下来，定时器到点时按最新尺寸计算一次；这期间仍用旧布局绘制
+        resizeTimer = new Timer(RESIZE_COALESCE_MILLIS, e -> {
+            updateMetrics();
+            repaint();
+        });
+        resizeTimer.setRepeats(false);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                if (!resizeTimer.isRunning()) {
+                    resizeTimer.start();
+                }
+            }
+        });
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = groupCount > topCount ? 2 : 1;
+        return new Dimension(topCount * 400 + (topCount - 1) * LayoutMetrics.GAP, rows * 300 + (rows - 1) * LayoutMetrics.GAP);
+    }
+
+    void setNumber(int group, int index, int value) {
+        int i = group * pick + index;
+        if (values[i] == value) {
+            return;
+        }
+        values[i] = value;
+        if (metrics != null) {
+            repaint(metrics.cells[i]);
+        } else {
+            repaint();
+        }
+    }
+
+    void setNumbers(int[][] groups) {
+        for (int g = 0; g < groupCount; g++) {
+            for (int k = 0; k < pick; k++) {
+                setNumber(g, k, groups[g][k]);
+            }
+        }
+    }
+
+    // 取当前尺寸的布局，缓存里没有才计算
+    private void updateMetrics() {
+        // 窗口移到缩放比例不同的屏幕上时，缓存的图集都要按新的比例重画
+        GraphicsConfiguration config = getGraphicsConfiguration();
+        if (metrics != null && !metrics.atlas.matches(GlyphAtlas.scaleX(config), GlyphAtlas.scaleY(config))) {
+            metricsCache.clear();
+            metrics = null;
+        }
+        int width = getWidth();
+        int height = getHeight();
+        if (metrics != null && metrics.width == width && metrics.height == height) {
+            return;
+        }
+        long key = (long) width << 32 | (height & 0xffffffffL);
+        LayoutMetrics cached = metricsCache.get(key);
+        if (cached == null) {
+            cached = new LayoutMetrics(this, width, height, groupCount, pick, topCount, maxValue,
+                baseFont, numberColor, separatorColor);
+            metricsCache.put(key, cached);
+        }
+        metrics = cached;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        long start = System.nanoTime();
+        paintBoard(graphics);
+        EdtMonitor.recordBoardPaint(System.nanoTime() - start);
+    }
+
+    private void paintBoard(Graphics graphics) {
+        if (metrics == null || !resizeTimer.isRunning()) {
+            updateMetrics();
+        }
+        LayoutMetrics m = metrics;
+        Graphics2D g2 = (Graphics2D) graphics;
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g2.setColor(getBackground());
+        g2.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        for (int g = 0; g < groupCount; g++) {
+            Rectangle box = m.boxes[g];
+            if (!box.intersects(clip)) {
+                continue;
+            }
+            // 圆角边框，画法同 LineBorder(颜色, 2, true)
+            g2.setColor(BORDER_COLOR);
+            for (int i = 0; i < LayoutMetrics.BORDER; i++) {
+                g2.drawRoundRect(box.x + i, box.y + i, box.width - i - i - 1, box.height - i - i - 1,
+                    LayoutMetrics.BORDER, LayoutMetrics.BORDER);
+            }
+            for (int k = 1; k < pick; k++) {
+                Rectangle cell = m.separators[g * (pick - 1) + k - 1];
+                if (cell.intersects(clip)) {
+                    drawGlyph(g2, m.atlas, 0, cell, SwingConstants.CENTER);
+                }
+            }
+            for (int k = 0; k < pick; k++) {
+                Rectangle cell = m.cells[g * pick + k];
+                int value = values[g * pick + k];
+                if (value > 0 && cell.intersects(clip)) {
+                    // 第一个数靠右、最后一个数靠左，中间的数居中
+                    int alignment = pick > 1 && k == 0 ? SwingConstants.RIGHT
+                        : pick > 1 && k == pick - 1 ? SwingConstants.LEFT
+                        : SwingConstants.CENTER;
+                    drawGlyph(g2, m.atlas, value, cell, alignment);
+                }
+            }
+        }
+    }
+
+    private void drawGlyph(Graphics2D g2, GlyphAtlas atlas, int glyph, Rectangle cell, int alignment) {
+        if (glyph > maxValue) {
+            return;
+        }
+        int width = atlas.getWidth(glyph);
+        int x = alignment == SwingConstants.RIGHT ? cell.x + cell.width - width
+            : alignment == SwingConstants.LEFT ? cell.x
+            : cell.x + (cell.width - width) / 2;
+        atlas.draw(g2, glyph, x, cell.y + (cell.height - atlas.getHeight()) / 2);
+    }
+}
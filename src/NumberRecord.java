@@ -9,22 +9,37 @@ public class NumberRecord {
     private LocalDateTime dateTime;
     private String[] names;
     private String[] cardIds;
+    private int sequence = -1;  // 在历史记录中的序号，加入 DataManager 时分配
 
     public NumberRecord(int[][] numbers) {
+        this(numbers, LocalDateTime.now());
+    }
+
+    // 从文件恢复记录时使用原来的抽取时间
+    public NumberRecord(int[][] numbers, LocalDateTime dateTime) {
         this.numbers = numbers;
-        this.dateTime = LocalDateTime.now();
+        this.dateTime = dateTime;
         this.timestamp = dateTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-        this.names = new String[5];
-        this.cardIds = new String[5];
+        this.names = new String[numbers.length];  // 每组一个登记位
+        this.cardIds = new String[numbers.length];
     }
 
     public void addRegistration(int groupIndex, String name, String cardId) {
-        if (groupIndex >= 0 && groupIndex < 5) {
+        if (groupIndex >= 0 && groupIndex < names.length) {
             names[groupIndex] = name;
             cardIds[groupIndex] = cardId;
         }
     }
 
+    // 连同登记信息和序号复制一份，数字数组创建后不再修改，直接共用
+    NumberRecord copy() {
+        NumberRecord copy = new NumberRecord(numbers, dateTime);
+        System.arraycopy(names, 0, copy.names, 0, names.length);
+        System.arraycopy(cardIds, 0, copy.cardIds, 0, cardIds.length);
+        copy.sequence = sequence;
+        return copy;
+    }
+
     public String getName(int groupIndex) {
         return names[groupIndex];
     }
@@ -37,6 +52,18 @@ public class NumberRecord {
         return numbers;
     }
 
+    public LocalDateTime getDateTime() {
+        return dateTime;
+    }
+
+    int getSequence() {
+        return sequence;
+    }
+
+    void setSequence(int sequence) {
+        this.sequence = sequence;
+    }
+
     public String getTimestamp() {
         return timestamp;
     }
@@ -54,7 +81,10 @@ public class NumberRecord {
         StringBuilder sb = new StringBuilder();
         sb.append(timestamp).append("\n");
         for (int i = 0; i < numbers.length; i++) {
-            sb.append(numbers[i][0]).append(" - ").append(numbers[i][1]);
+            for (int k = 0; k < numbers[i].length; k++) {
+                if (k > 0) sb.append(" - ");
+                sb.append(numbers[i][k]);
+            }
             if (names[i] != null && !names[i].isEmpty()) {
                 sb.append(" (").append(names[i]).append(", ").append(cardIds[i]).append(")");
             }
@@ -0,0 +1,32 @@
+package src;
+
+// 后台写入线程的统计快照
+public final class PersistenceStats {
+    public final int queueDepth;         // 当前排队等待写入的操作数
+    public final long flushCount;        // 已写入的批次数
+    public final long entriesWritten;    // 写入存储的记录数
+    public final long entriesCoalesced;  // 被合并掉的重复操作数
+    public final long queueFullCount;    // 队列已满、操作转入溢出列表的次数（调用方从不等待）
+    public final double lastFlushMillis;
+    public final double maxFlushMillis;
+    public final double averageFlushMillis;
+
+    PersistenceStats(int queueDepth, long flushCount, long entriesWritten, long entriesCoalesced,
+                     long queueFullCount, long lastFlushNanos, long maxFlushNanos, long totalFlushNanos) {
+        this.queueDepth = queueDepth;
+        this.flushCount = flushCount;
+        this.entriesWritten = entriesWritten;
+        this.entriesCoalesced = entriesCoalesced;
+        this.queueFullCount = queueFullCount;
+        this.lastFlushMillis = lastFlushNanos / 1e6;
+        this.maxFlushMillis = maxFlushNanos / 1e6;
+        this.averageFlushMillis = flushCount == 0 ? 0 : totalFlushNanos / 1e6 / flushCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("队列 %d, flush %d 次 (最近 %.2f ms, 平均 %.2f ms, 最长 %.2f ms), 写入 %d 条, 合并 %d 条, 队列满 %d 次",
+            queueDepth, flushCount, lastFlushMillis, averageFlushMillis, maxFlushMillis,
+            entriesWritten, entriesCoalesced, queueFullCount);
+    }
+}
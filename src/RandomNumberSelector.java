@@ -1,18 +1,16 @@
 package src;
 import javax.swing.*;
-import javax.swing.border.*;
 import java.awt.*;
 import java.awt.event.*;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Arrays;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class RandomNumberSelector extends JFrame {
     private JPanel mainPanel;
-    private Timer animationTimer;
-    private Random random = new Random();
+    private NumberBoard numberBoard;
+    private final FrameScheduler animation = FrameScheduler.fromProperties();
+    private DrawEngine drawEngine = new DrawEngine(); // 正式结果使用 RandomProvider 选定的算法
+    private final DrawLayout layout = drawEngine.getLayout();
+    private final int topCount = (layout.getGroupCount() + 1) / 2; // 上排面板数，其余放在下排
 
     // 在类的开头添加字体相关的常量
     private static final Font NUMBER_FONT = new Font("Helvetica", Font.BOLD, 150);
@@ -131,31 +129,9 @@ public class RandomNumberSelector extends JFrame {
         mainPanel.setBackground(BACKGROUND_COLOR);
         mainPanel.setBorder(BorderFactory.createEmptyBorder(50, 50, 50, 50));  // 增加边距
 
-        // 创建一个包装面板来实现垂直居中
-        JPanel wrapperPanel = new JPanel(new GridBagLayout());
-        wrapperPanel.setBackground(BACKGROUND_COLOR);
-        
-        // 创建内容面
-        JPanel contentPanel = new JPanel(new BorderLayout(30, 30));
-        contentPanel.setBackground(BACKGROUND_COLOR);
-
-        // 创建上下两个子面板
-
-        JPanel topPanel = new JPanel(new GridLayout(1, 3, 30, 0));
-        JPanel bottomPanel = new JPanel(new FlowLayout(FlowLayout.CENTER, 30, 30)); // 增加垂直间距
-        
-        topPanel.setBackground(BACKGROUND_COLOR);
-        bottomPanel.setBackground(BACKGROUND_COLOR);
-
-        // 初始显示空面板
-        displayEmptyPanels(topPanel, bottomPanel);
-
-        contentPanel.add(topPanel, BorderLayout.NORTH);
-        contentPanel.add(bottomPanel, BorderLayout.CENTER);
-        
-        // 使用GridBagLayout来实现整体居中
-        wrapperPanel.add(contentPanel);
-        mainPanel.add(wrapperPanel, BorderLayout.CENTER);
+        // 所有分组的数字框由一个画板绘制，初始为空
+        numberBoard = new NumberBoard(layout, topCount, NUMBER_FONT, NUMBER_COLOR, SEPARATOR_COLOR, BACKGROUND_COLOR);
+        mainPanel.add(numberBoard, BorderLayout.CENTER);
 
         // 添加键盘监听器
         KeyboardFocusManager.getCurrentKeyboardFocusManager()
@@ -185,11 +161,7 @@ public class RandomNumberSelector extends JFrame {
         // 历史记录按钮
         JButton historyButton = new JButton("历史记录");
         historyButton.setFont(new Font("Arial", Font.BOLD, 16));
-        historyButton.addActionListener(e -> {
-            SoundManager.playButtonClick();
-            HistoryDialog dialog = new HistoryDialog(this, DataManager.getHistory());
-            dialog.setVisible(true);
-        });
+        historyButton.addActionListener(e -> showHistory(historyButton));
 
         buttonPanel.add(generateButton);
         buttonPanel.add(historyButton);
@@ -204,395 +176,60 @@ public class RandomNumberSelector extends JFrame {
         add(mainPanel, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
 
-        // 初始化完成后立即更新面板大小
-        SwingUtilities.invokeLater(this::updatePanelSizes);
-
-        // 添加窗口大小改变的监听
-        addComponentListener(new ComponentAdapter() {
-            @Override
-            public void componentResized(ComponentEvent e) {
-                updatePanelSizes();
-            }
-        });
+        // 窗口大小改变时画板自己重新计算布局
     }
 
-    private void updatePanelSizes() {
-        if (animationTimer != null && animationTimer.isRunning()) {
-            return;
-        }
-
-        SwingUtilities.invokeLater(() -> {
-            // 获取当前窗口大小
-            int windowWidth = getWidth();
-            int windowHeight = getHeight();
-            
-            // 调整计算逻辑，确保有足够空间显示数字
-            int panelWidth = Math.min((windowWidth - 300) / 3, (windowHeight - 250) / 2);
-            int panelHeight = panelWidth * 3 / 4;  // 调整高宽比
-            
-            // 调整最小尺寸
-            panelWidth = Math.max(panelWidth, 200);  // 增加最小宽度
-            panelHeight = Math.max(panelHeight, 150); // 增加最小高度
-            
-            // 调整字体大小计算逻辑
-            int fontSize = (int)Math.min(panelWidth / 1.5, panelHeight / 1.5);
-            fontSize = Math.max(fontSize, 64);
-            
-            // 获取正确的面板引用
-            JPanel wrapperPanel = (JPanel) mainPanel.getComponent(0);
-            JPanel contentPanel = (JPanel) wrapperPanel.getComponent(0);
-            JPanel topPanel = (JPanel) contentPanel.getComponent(0);
-            JPanel bottomPanel = (JPanel) contentPanel.getComponent(1);
-            
-            // 更新上面和下面的面板
-            updatePanelsInContainer(topPanel, new Dimension(panelWidth, panelHeight), fontSize);
-            updatePanelsInContainer(bottomPanel, new Dimension(panelWidth, panelHeight), fontSize);
-            
-            mainPanel.revalidate();
-            mainPanel.repaint();
+    private void startNumberAnimation() {
+        int[][] finalNumbers = generateFinalNumbers();
+
+        // 动画逻辑：按帧率显示随机数字，时长结束后显示正式结果
+        animation.start(this::displayRandomNumbers, stats -> {
+            displayFinalNumbers(finalNumbers);
+            // 获取并启用生成按钮
+            JPanel buttonPanel = (JPanel) getContentPane().getComponent(2);
+            JButton generateButton = (JButton) buttonPanel.getComponent(0);
+            generateButton.setEnabled(true);
         });
     }
 
-    private void updatePanelsInContainer(Container container, Dimension size, int fontSize) {
-        for (Component comp : container.getComponents()) {
-            if (comp instanceof JPanel) {
-                JPanel panel = (JPanel) comp;
-                panel.setPreferredSize(size);
-                
-                // 更新面板中的标
-                for (Component c : panel.getComponents()) {
-                    if (c instanceof JLabel) {
-                        JLabel label = (JLabel) c;
-                        if ("·".equals(label.getText())) {
-                            // 点号使用相同大小的字体
-                            label.setFont(new Font("Arial", Font.BOLD, fontSize));
-                        } else {
-                            // 字使用粗体
-                            label.setFont(new Font("Arial", Font.BOLD, fontSize));
-                        }
-                    }
-                }
+    // 每帧只改画板里的数字，变化的数字格各自重绘
+    private void displayRandomNumbers() {
+        // 动画中的数字只是视觉效果，不占用正式抽取的生成器
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int g = 0; g < layout.getGroupCount(); g++) {
+            for (int k = 0; k < layout.getPickSize(); k++) {
+                numberBoard.setNumber(g, k, random.nextInt(layout.getMaxValue()) + 1);
             }
         }
     }
 
-    private void displayEmptyPanels(JPanel topPanel, JPanel bottomPanel) {
-        topPanel.removeAll();
-        bottomPanel.removeAll();
-
-        // 添加上面三个面板
-        for (int i = 0; i < 3; i++) {
-            topPanel.add(createNumberPanel("", "", 0));
-        }
-
-        // 添加下面两个面板
-        for (int i = 0; i < 2; i++) {
-            bottomPanel.add(createNumberPanel("", "", 0));
+    private int[][] generateFinalNumbers() {
+        JfrEvents.Draw event = new JfrEvents.Draw();
+        event.begin();
+        int[][] numbers = drawEngine.draw();
+        if (event.shouldCommit()) {
+            event.source = "界面";
+            event.groups = numbers.length;
+            event.numbers = drawEngine.getDrawWidth();
+            event.algorithm = RandomProvider.algorithm();
+            event.commit();
         }
-
-        mainPanel.revalidate();
-        mainPanel.repaint();
-    }
-
-    private JPanel createNumberPanel(String num1, String num2, int groupIndex) {
-        JPanel panel = new JPanel(new BorderLayout());
-        panel.setPreferredSize(new Dimension(400, 240));
-        panel.setBackground(BACKGROUND_COLOR);
-        
-        // 增加内边距，特别是底部边距
-        panel.setBorder(BorderFactory.createCompoundBorder(
-            new LineBorder(new Color(200, 200, 200), 2, true),
-            BorderFactory.createEmptyBorder(15, 15, 25, 15)  // 将底部内边距从15改为25
-        ));
-
-        // 创建一个固定宽度的面板来包含数字和分隔符
-        JPanel centerPanel = new JPanel(new GridBagLayout());
-        centerPanel.setBackground(BACKGROUND_COLOR);
-
-        // 创建三个固定宽度的面板
-        JPanel leftPanel = new JPanel(new GridBagLayout());
-        JPanel middlePanel = new JPanel(new GridBagLayout());
-        JPanel rightPanel = new JPanel(new GridBagLayout());
-        
-        leftPanel.setBackground(BACKGROUND_COLOR);
-        middlePanel.setBackground(BACKGROUND_COLOR);
-        rightPanel.setBackground(BACKGROUND_COLOR);
-
-        // 增加面板高度
-        leftPanel.setPreferredSize(new Dimension(150, 220));    // 从200改为220
-        middlePanel.setPreferredSize(new Dimension(100, 220));  // 从200改为220
-        rightPanel.setPreferredSize(new Dimension(150, 220));   // 从200改为220
-
-        // 创建标签
-        JLabel label1 = new JLabel(num1, SwingConstants.RIGHT);
-        JLabel separator = new JLabel("·", SwingConstants.CENTER);
-        JLabel label2 = new JLabel(num2, SwingConstants.LEFT);
-        
-        // 配置标签
-        configureNumberLabel(label1);
-        configureSeparatorLabel(separator);
-        configureNumberLabel(label2);
-
-        // 为标签添加一些底部边距
-        label1.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
-        separator.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
-        label2.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
-
-        // 添加标签到各自的面板
-        leftPanel.add(label1);
-        middlePanel.add(separator);
-        rightPanel.add(label2);
-
-        // 使用 GridBagLayout 布局
-        GridBagConstraints gbc = new GridBagConstraints();
-        gbc.gridx = 0;
-        gbc.gridy = 0;
-        gbc.weightx = 1.0;
-        gbc.fill = GridBagConstraints.BOTH;
-
-        // 添加三个面板到中心面板
-        centerPanel.add(leftPanel, gbc);
-        gbc.gridx = 1;
-        gbc.weightx = 0.0;
-        centerPanel.add(middlePanel, gbc);
-        gbc.gridx = 2;
-        gbc.weightx = 1.0;
-        centerPanel.add(rightPanel, gbc);
-
-        // 将中心面板添加到主面板
-        panel.add(centerPanel, BorderLayout.CENTER);
-        
-        return panel;
-    }
-
-    private void configureNumberLabel(JLabel label) {
-        label.setFont(NUMBER_FONT);
-        label.setForeground(NUMBER_COLOR);
-        label.setBackground(BACKGROUND_COLOR);
-        label.setOpaque(true);
-        label.setBorder(null);
-    }
-
-    private void configureSeparatorLabel(JLabel label) {
-        label.setFont(NUMBER_FONT);
-        label.setForeground(SEPARATOR_COLOR);
-        label.setBackground(BACKGROUND_COLOR);
-        label.setOpaque(true);
-        label.setBorder(null);
+        return numbers;
     }
 
-    private void startNumberAnimation() {
-        final int[] frameCount = {0};
-        final int totalFrames = 20;
-        List<List<Integer>> finalNumbers = generateFinalNumbers();
-        
-        // 计算当前的面板和字体大小
-        int panelWidth = (getWidth() - 180) / 3;
-        int panelHeight = panelWidth * 2 / 3;
-        int fontSize = Math.min(panelWidth / 4, panelHeight / 2);
-        Dimension panelSize = new Dimension(panelWidth, panelHeight);
-        
-        animationTimer = new Timer(50, e -> {
-            if (frameCount[0] >= totalFrames) {
-                animationTimer.stop();
-                displayFinalNumbers(finalNumbers, panelSize, fontSize);
-                // ��取并启用生成按钮
-                JPanel buttonPanel = (JPanel) getContentPane().getComponent(2);
-                JButton generateButton = (JButton) buttonPanel.getComponent(0);
-                generateButton.setEnabled(true);
-                return;
-            }
-            
-            // 获取正确的面板引用
-            JPanel wrapperPanel = (JPanel) mainPanel.getComponent(0);
-            JPanel contentPanel = (JPanel) wrapperPanel.getComponent(0);
-            JPanel topPanel = (JPanel) contentPanel.getComponent(0);
-            JPanel bottomPanel = (JPanel) contentPanel.getComponent(1);
-            
-            // 动画逻辑
-            displayRandomNumbers(topPanel, bottomPanel, panelSize, fontSize);
-            
-            frameCount[0]++;
-        });
-        
-        animationTimer.start();
-    }
-
-    private void displayRandomNumbers(JPanel topPanel, JPanel bottomPanel, Dimension panelSize, int fontSize) {
-        topPanel.removeAll();
-        bottomPanel.removeAll();
-        
-        // 更新上面三面板
-        for (int i = 0; i < 3; i++) {
-            int num1 = random.nextInt(20) + 1;
-            int num2 = random.nextInt(20) + 1;
-            JPanel numberPanel = createNumberPanel(
-                String.valueOf(num1),
-                String.valueOf(num2),
-                0
-            );
-            numberPanel.setPreferredSize(panelSize);
-            updatePanelFontSize(numberPanel, fontSize);
-            topPanel.add(numberPanel);
-        }
-        
-        // 更新下面两个面板
-        for (int i = 0; i < 2; i++) {
-            int num1 = random.nextInt(20) + 1;
-            int num2 = random.nextInt(20) + 1;
-            JPanel numberPanel = createNumberPanel(
-                String.valueOf(num1),
-                String.valueOf(num2),
-                0
-            );
-            numberPanel.setPreferredSize(panelSize);
-            updatePanelFontSize(numberPanel, fontSize);
-            bottomPanel.add(numberPanel);
-        }
-        
-        mainPanel.revalidate();
-        mainPanel.repaint();
-    }
-
-    private List<List<Integer>> generateFinalNumbers() {
-        List<List<Integer>> groups = new ArrayList<>();
-        
-        // 第一组 (1-4)
-        List<Integer> group1 = new ArrayList<>();
-        int num1 = random.nextInt(3) + 1;  // 1-3
-        int num2;
-        do {
-            num2 = random.nextInt(4) + 1;  // 1-4
-        } while (num2 <= num1);
-        group1.add(num1);
-        group1.add(num2);
-        groups.add(group1);
-
-        // 第二组 (5-8)
-        List<Integer> group2 = new ArrayList<>();
-        num1 = random.nextInt(3) + 5;  // 5-7
-        do {
-            num2 = random.nextInt(4) + 5;  // 5-8
-        } while (num2 <= num1);
-        group2.add(num1);
-        group2.add(num2);
-        groups.add(group2);
-
-        // 第三组 (9-12)
-        List<Integer> group3 = new ArrayList<>();
-        num1 = random.nextInt(3) + 9;  // 9-11
-        do {
-            num2 = random.nextInt(4) + 9;  // 9-12
-        } while (num2 <= num1);
-        group3.add(num1);
-        group3.add(num2);
-        groups.add(group3);
-
-        // 第四组 (13-16)
-        List<Integer> group4 = new ArrayList<>();
-        num1 = random.nextInt(3) + 13;  // 13-15
-        do {
-            num2 = random.nextInt(4) + 13;  // 13-16
-        } while (num2 <= num1);
-        group4.add(num1);
-        group4.add(num2);
-        groups.add(group4);
-
-        // 第五组 (17-20)
-        List<Integer> group5 = new ArrayList<>();
-        num1 = random.nextInt(3) + 17;  // 17-19
-        do {
-            num2 = random.nextInt(4) + 17;  // 17-20
-        } while (num2 <= num1);
-        group5.add(num1);
-        group5.add(num2);
-        groups.add(group5);
-
-        return groups;
-    }
-
-    private void displayFinalNumbers(List<List<Integer>> groups, Dimension panelSize, int fontSize) {
+    private void displayFinalNumbers(int[][] groups) {
         // 播放数字生成完成音效
         SoundManager.playNumberGenerate();
-        
-        // 获取正确的板引用
-        JPanel wrapperPanel = (JPanel) mainPanel.getComponent(0);
-        JPanel contentPanel = (JPanel) wrapperPanel.getComponent(0);
-        JPanel topPanel = (JPanel) contentPanel.getComponent(0);
-        JPanel bottomPanel = (JPanel) contentPanel.getComponent(1);
-        
-        topPanel.removeAll();
-        bottomPanel.removeAll();
-
-        // 显示上面三组数字
-        for (int i = 0; i < 3; i++) {
-            List<Integer> group = groups.get(i);
-            JPanel numberPanel = createNumberPanel(
-                String.valueOf(group.get(0)),
-                String.valueOf(group.get(1)),
-                i  // 传入正确的组索引
-            );
-            numberPanel.setPreferredSize(panelSize);
-            updatePanelFontSize(numberPanel, fontSize);
-            topPanel.add(numberPanel);
-        }
-
-        // 显示下面两组数字
-        for (int i = 3; i < 5; i++) {
-            List<Integer> group = groups.get(i);
-            JPanel numberPanel = createNumberPanel(
-                String.valueOf(group.get(0)),
-                String.valueOf(group.get(1)),
-                i  // 传入正确的组索引
-            );
-            numberPanel.setPreferredSize(panelSize);
-            updatePanelFontSize(numberPanel, fontSize);
-            bottomPanel.add(numberPanel);
-        }
 
-        mainPanel.revalidate();
-        mainPanel.repaint();
+        numberBoard.setNumbers(groups);
 
         // 保存到历史记录
-        int[][] numbers = new int[5][2];
-        for (int i = 0; i < groups.size(); i++) {
-            numbers[i][0] = groups.get(i).get(0);
-            numbers[i][1] = groups.get(i).get(1);
-        }
-        DataManager.addRecord(new NumberRecord(numbers));
-    }
-
-    // 更新updatePanelFontSize方法
-    private void updatePanelFontSize(JPanel panel, int fontSize) {
-        for (Component c : panel.getComponents()) {
-            if (c instanceof JPanel) {
-                JPanel centerPanel = (JPanel) c;
-                for (Component centerComp : centerPanel.getComponents()) {
-                    if (centerComp instanceof JPanel) {
-                        JPanel subPanel = (JPanel) centerComp;
-                        for (Component label : subPanel.getComponents()) {
-                            if (label instanceof JLabel) {
-                                JLabel jLabel = (JLabel) label;
-                                if ("·".equals(jLabel.getText())) {
-                                    // 分隔符使用固定大小的字体
-                                    jLabel.setFont(new Font("Arial", Font.PLAIN, fontSize));
-                                    jLabel.setForeground(SEPARATOR_COLOR);
-                                } else {
-                                    // 数字使用更大的字体
-                                    jLabel.setFont(new Font("Helvetica", Font.BOLD, fontSize));
-                                    jLabel.setForeground(NUMBER_COLOR);
-                                }
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        DataManager.addRecord(new NumberRecord(groups));
     }
 
     // 添加个新方法来处理生成数字的逻辑
     private void generateNumbers() {
-        if (animationTimer != null && animationTimer.isRunning()) {
+        if (animation.isRunning()) {
             return;
         }
         
@@ -607,9 +244,32 @@ public class RandomNumberSelector extends JFrame {
         startNumberAnimation();
     }
 
-    private void showHistory() {
+    private void showHistory(JButton historyButton) {
         SoundManager.playButtonClick();
+        if (DataManager.isReady()) {
+            openHistoryDialog();
+            return;
+        }
+        // 历史记录还在后台加载：显示等待光标，加载完成后再打开
+        historyButton.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        DataManager.init().thenRun(() -> SwingUtilities.invokeLater(() -> {
+            setCursor(Cursor.getDefaultCursor());
+            historyButton.setEnabled(true);
+            openHistoryDialog();
+        }));
+    }
+
+    // 记录从创建窗口到窗口显示出来的耗时
+    private void openHistoryDialog() {
+        long start = System.nanoTime();
         HistoryDialog dialog = new HistoryDialog(this, DataManager.getHistory());
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowOpened(WindowEvent e) {
+                EdtMonitor.recordHistoryOpen(System.nanoTime() - start);
+            }
+        });
         dialog.setVisible(true);
     }
 
@@ -794,9 +454,9 @@ public class RandomNumberSelector extends JFrame {
         styleDialogButton(confirmButton, new Color(24, 144, 255), Color.WHITE);
         confirmButton.addActionListener(e -> {
             // 保存补登信息
-            NumberRecord currentRecord = DataManager.getHistory().get(DataManager.getHistory().size() - 1);
-            currentRecord.addRegistration(groupIndex, nameField.getText(), cardIdField.getText());
-            DataManager.updateRecord(currentRecord);
+            // 先取条数再取快照，快照至少包含这么多条
+            int last = DataManager.getHistorySize() - 1;
+            DataManager.register(last, groupIndex, nameField.getText(), cardIdField.getText());
             dialog.dispose();
         });
         
@@ -825,9 +485,31 @@ public class RandomNumberSelector extends JFrame {
     }
 
     public static void main(String[] args) {
+        // 带参数时不创建窗口：--serve 启动 HTTP 抽取服务，其余为批量模式
+        if (args.length > 0 && "--serve".equals(args[0])) {
+            DrawService.main(args);
+            return;
+        }
+        if (args.length > 0) {
+            System.exit(BatchMode.run(args));
+        }
+
+        // 历史记录和音效在后台加载，窗口不必等待
+        DataManager.init();
+        DrawService.startIfConfigured();
+        EdtMonitor.start();
+        SoundManager.preload();
         SwingUtilities.invokeLater(() -> {
             RandomNumberSelector selector = new RandomNumberSelector();
             selector.setVisible(true);
+            // 历史记录无法保存时提示用户，而不是悄悄只保存在内存中
+            DataManager.init().thenRun(() -> {
+                String error = DataManager.getPersistenceError();
+                if (error != null) {
+                    SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(selector, error,
+                        "历史记录", JOptionPane.WARNING_MESSAGE));
+                }
+            });
         });
     }
 }
\ No newline at end of file
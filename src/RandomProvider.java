@@ -0,0 +1,87 @@
+package src;
+
+import java.security.SecureRandom;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+// 随机数生成器的统一入口
+// 算法通过系统属性 rns.random 选择：L64X128MixRandom（默认）等 LXM 系列、SplittableRandom、
+// Xoshiro256PlusPlus 等可跳跃算法，或者审计抽取用的 SecureRandom
+// 每个线程从根生成器 split/jump 出自己的独立流，并发抽取时不会在同一个生成器上竞争
+public final class RandomProvider {
+    public static final String ALGORITHM_PROPERTY = "rns.random";
+    public static final String SEED_PROPERTY = "rns.random.seed";  // 指定种子可复现整批结果
+    public static final String DEFAULT_ALGORITHM = "L64X128MixRandom";
+    public static final String SECURE_ALGORITHM = "SecureRandom";
+
+    private static final String algorithm;
+    private static final RandomGeneratorFactory<RandomGenerator> factory;
+    private static final RandomGenerator root;
+
+    private static final ThreadLocal<RandomGenerator> perThread =
+        ThreadLocal.withInitial(RandomProvider::newGenerator);
+
+    static {
+        String name = System.getProperty(ALGORITHM_PROPERTY, DEFAULT_ALGORITHM);
+        RandomGeneratorFactory<RandomGenerator> selected;
+        try {
+            selected = RandomGeneratorFactory.of(name);
+        } catch (IllegalArgumentException e) {
+            System.out.println("未知的随机数算法 " + name + "，改用 " + DEFAULT_ALGORITHM);
+            name = DEFAULT_ALGORITHM;
+            selected = RandomGeneratorFactory.of(DEFAULT_ALGORITHM);
+        }
+        algorithm = name;
+        factory = selected;
+
+        root = createRoot(factory);
+    }
+
+    private RandomProvider() {
+    }
+
+    // 种子写错时不能让类初始化失败，否则之后每次使用都会 NoClassDefFoundError
+    private static RandomGenerator createRoot(RandomGeneratorFactory<RandomGenerator> factory) {
+        String seed = System.getProperty(SEED_PROPERTY);
+        if (seed == null) {
+            return factory.create();
+        }
+        try {
+            return factory.create(Long.parseLong(seed.trim()));
+        } catch (NumberFormatException e) {
+            System.out.println("随机数种子 " + seed + " 不是整数，改用随机种子");
+            return factory.create();
+        }
+    }
+
+    public static String algorithm() {
+        return algorithm;
+    }
+
+    public static boolean isSecure() {
+        return root instanceof SecureRandom;
+    }
+
+    // 当前线程专用的生成器，只能在本线程使用
+    public static RandomGenerator current() {
+        return perThread.get();
+    }
+
+    // 创建一条与其他流互不重叠的新生成器，交给单个工作线程独占使用
+    public static RandomGenerator newGenerator() {
+        synchronized (root) {
+            if (root instanceof RandomGenerator.SplittableGenerator) {
+                return ((RandomGenerator.SplittableGenerator) root).split();
+            }
+            if (root instanceof RandomGenerator.JumpableGenerator) {
+                return ((RandomGenerator.JumpableGenerator) root).copyAndJump();
+            }
+            if (!isSecure()) {
+                // 其余算法用根生成器派生种子，指定 rns.random.seed 时仍可复现
+                return factory.create(root.nextLong());
+            }
+        }
+        // SecureRandom 不可拆分：每个线程各自创建一个实例，由系统熵源播种
+        return factory.create();
+    }
+}
@@ -3,73 +3,166 @@ package src;
 import javax.sound.sampled.*;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
 
+// 音效由一个后台混音线程播放：启动时把音效解码成统一格式的 PCM 放在内存，只打开一条 SourceDataLine 一直用
+// 播放请求只是把音效放进无锁队列并唤醒混音线程，界面线程立即返回；同时播放的音效在混音线程里逐个采样相加
+// 没有播放时混音线程休眠，线路缓冲很小，新音效写入后很快就能听到
 public class SoundManager {
     private static final String BUTTON_CLICK_SOUND = "sounds/button_click.wav";
     private static final String NUMBER_GENERATE_SOUND = "sounds/number_generate.wav";
-    
+    // 所有音效都转换成这个格式再混音
+    private static final AudioFormat OUTPUT_FORMAT = new AudioFormat(44100f, 16, 2, true, false);
+    private static final int CHUNK_FRAMES = 256;    // 每次混音约 5.8ms
+    private static final int LINE_CHUNKS = 4;       // 线路缓冲约 23ms，决定了最坏情况下的播放延迟
+
+    private static final Map<String, short[]> sounds = new ConcurrentHashMap<>();
+    private static final Queue<short[]> requests = new ConcurrentLinkedQueue<>();
+    private static Thread loader;
+    private static volatile Thread mixerThread;  // 线路打开成功后才设置，之前的播放请求直接忽略
+
     static {
         // 确保音效文件夹存在
         File soundDir = new File("sounds");
         if (!soundDir.exists()) {
             soundDir.mkdir();
         }
-        
-        // 检查音效文件是否存在并输出状态
-        checkSoundFile(BUTTON_CLICK_SOUND);
-        checkSoundFile(NUMBER_GENERATE_SOUND);
     }
-    
-    private static void checkSoundFile(String path) {
-        File soundFile = new File(path);
-        if (soundFile.exists()) {
-            System.out.println(path + " 音效加载成功！");
-        } else {
-            System.out.println("警告: " + path + " 音效文件不存在！");
+
+    // 正在播放的一个音效及其播放位置，只在混音线程中使用
+    private static final class Voice {
+        final short[] samples;
+        int position;
+
+        Voice(short[] samples) {
+            this.samples = samples;
         }
     }
 
-    public static void playButtonClick() {
-        try {
-            playSound(BUTTON_CLICK_SOUND);
-        } catch (IOException e) {
-            System.out.println("播放按钮音效失败: " + e.getMessage());
+    // 在后台线程加载音效并打开线路，之后同一线程转为混音线程；可重复调用
+    public static synchronized void preload() {
+        if (loader != null) {
+            return;
         }
+        loader = new Thread(SoundManager::run, "sound-mixer");
+        loader.setDaemon(true);
+        loader.setPriority(Thread.MAX_PRIORITY);
+        loader.start();
     }
 
-    public static void playNumberGenerate() {
+    private static void run() {
+        load(BUTTON_CLICK_SOUND);
+        load(NUMBER_GENERATE_SOUND);
+        if (sounds.isEmpty()) {
+            return;
+        }
+        int frameSize = OUTPUT_FORMAT.getFrameSize();
+        SourceDataLine line;
         try {
-            playSound(NUMBER_GENERATE_SOUND);
-        } catch (IOException e) {
-            System.out.println("播放生成音效失败: " + e.getMessage());
+            line = AudioSystem.getSourceDataLine(OUTPUT_FORMAT);
+            line.open(OUTPUT_FORMAT, CHUNK_FRAMES * frameSize * LINE_CHUNKS);
+        } catch (LineUnavailableException | IllegalArgumentException e) {
+            // 没有可用的声卡时 getSourceDataLine 抛出 IllegalArgumentException
+            System.out.println("打开音频输出失败: " + e.getMessage());
+            return;
         }
+        line.start();
+        // JFR 事件类第一次使用时要初始化几百毫秒，先在这里做掉，免得落在第一次点击的界面线程上
+        new JfrEvents.PlaySound();
+        mixerThread = Thread.currentThread();
+        mix(line);
     }
 
-    private static void playSound(String soundFile) throws IOException {
-        try {
-            File file = new File(soundFile);
-            if (!file.exists()) {
-                return; // 如果文件不存在，静默返回
+    private static void mix(SourceDataLine line) {
+        int channels = OUTPUT_FORMAT.getChannels();
+        int[] sum = new int[CHUNK_FRAMES * channels];
+        byte[] out = new byte[sum.length * 2];
+        List<Voice> voices = new ArrayList<>();
+        while (true) {
+            short[] request;
+            while ((request = requests.poll()) != null) {
+                voices.add(new Voice(request));
+            }
+            if (voices.isEmpty()) {
+                // 没有要播放的内容：不再写线路，等待 playSound 唤醒（先投递再唤醒，不会漏掉）
+                LockSupport.park();
+                continue;
             }
 
-            AudioInputStream audioIn = AudioSystem.getAudioInputStream(file);
-            Clip clip = AudioSystem.getClip();
-            clip.open(audioIn);
-            clip.start();
-            
-            // 添加监听器在播放完成后关闭资源
-            clip.addLineListener(event -> {
-                if (event.getType() == LineEvent.Type.STOP) {
-                    try {
-                        clip.close();
-                        audioIn.close();
-                    } catch (IOException e) {
-                        System.out.println("关闭音频资源失败: " + e.getMessage());
-                    }
+            Arrays.fill(sum, 0);
+            for (int v = voices.size() - 1; v >= 0; v--) {
+                Voice voice = voices.get(v);
+                int count = Math.min(sum.length, voice.samples.length - voice.position);
+                for (int i = 0; i < count; i++) {
+                    sum[i] += voice.samples[voice.position + i];
                 }
-            });
-        } catch (UnsupportedAudioFileException | LineUnavailableException e) {
-            System.out.println("播放音效时出错: " + e.getMessage());
+                voice.position += count;
+                if (voice.position >= voice.samples.length) {
+                    voices.remove(v);
+                }
+            }
+            // 相加后超出 16 位范围的截断，16 位小端序写出
+            for (int i = 0; i < sum.length; i++) {
+                int sample = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, sum[i]));
+                out[i * 2] = (byte) sample;
+                out[i * 2 + 1] = (byte) (sample >> 8);
+            }
+            line.write(out, 0, out.length);
+        }
+    }
+
+    private static void load(String path) {
+        File soundFile = new File(path);
+        if (!soundFile.exists()) {
+            System.out.println("警告: " + path + " 音效文件不存在！");
+            return;
+        }
+        try (AudioInputStream audioIn = AudioSystem.getAudioInputStream(soundFile);
+             AudioInputStream converted = AudioSystem.getAudioInputStream(OUTPUT_FORMAT, audioIn)) {
+            byte[] data = converted.readAllBytes();
+            short[] samples = new short[data.length / 2];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = (short) ((data[i * 2] & 0xff) | data[i * 2 + 1] << 8);
+            }
+            sounds.put(path, samples);
+            System.out.println(path + " 音效加载成功！");
+        } catch (UnsupportedAudioFileException | IOException | IllegalArgumentException e) {
+            // 无法转换成输出格式时 getAudioInputStream 抛出 IllegalArgumentException
+            System.out.println("加载音效 " + path + " 失败: " + e.getMessage());
+        }
+    }
+
+    public static void playButtonClick() {
+        playSound(BUTTON_CLICK_SOUND);
+    }
+
+    public static void playNumberGenerate() {
+        playSound(NUMBER_GENERATE_SOUND);
+    }
+
+    private static void playSound(String soundFile) {
+        Thread mixer = mixerThread;
+        if (mixer == null) {
+            preload();
+            return; // 还在加载，或无法打开音频输出
+        }
+        short[] samples = sounds.get(soundFile);
+        if (samples == null) {
+            return; // 文件不存在或无法解码
         }
+        JfrEvents.PlaySound playEvent = new JfrEvents.PlaySound();
+        playEvent.begin();
+        requests.offer(samples);
+        LockSupport.unpark(mixer);
+        playEvent.sound = soundFile;
+        playEvent.bytes = samples.length * 2L;
+        playEvent.commit();
     }
-} 
\ No newline at end of file
+}
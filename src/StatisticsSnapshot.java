@@ -0,0 +1,66 @@
+package src;
+
+// 某一时刻的抽取统计，由 DataManager.getStatistics() 返回，之后不再变化
+public final class StatisticsSnapshot {
+    public final int drawCount;  // 统计的抽取次数
+    private final DrawLayout layout;
+    private final int[] combinationCounts;
+    private final int[] hits;
+    private final int[] lastSeen;
+
+    StatisticsSnapshot(DrawLayout layout, int drawCount, int[] combinationCounts, int[] hits, int[] lastSeen) {
+        this.layout = layout;
+        this.drawCount = drawCount;
+        this.combinationCounts = combinationCounts;
+        this.hits = hits;
+        this.lastSeen = lastSeen;
+    }
+
+    public DrawLayout getLayout() {
+        return layout;
+    }
+
+    // 数字 value（1 到 layout.getMaxValue()）出现的次数
+    public int getHits(int value) {
+        return hits[value];
+    }
+
+    // 数字 value 距上次出现隔了几次抽取，最近一次刚出现为 0，从未出现时等于 drawCount
+    public int getGap(int value) {
+        return lastSeen[value] < 0 ? drawCount : drawCount - 1 - lastSeen[value];
+    }
+
+    // 第 groupIndex 组第 combination 个组合（见 DrawLayout.copyCombination）出现的次数
+    public int getCombinationCount(int groupIndex, int combination) {
+        return combinationCounts[groupIndex * layout.getCombinationCount() + combination];
+    }
+
+    public int[] getCombination(int groupIndex, int combination) {
+        int[] values = new int[layout.getPickSize()];
+        layout.copyCombination(groupIndex, combination, values, 0);
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("共 ").append(drawCount).append(" 次抽取\n");
+        for (int g = 0; g < layout.getGroupCount(); g++) {
+            sb.append(DrawLayout.groupName(g)).append(":");
+            for (int c = 0; c < layout.getCombinationCount(); c++) {
+                int[] values = getCombination(g, c);
+                sb.append(" ");
+                for (int k = 0; k < values.length; k++) {
+                    if (k > 0) sb.append("-");
+                    sb.append(values[k]);
+                }
+                sb.append("=").append(getCombinationCount(g, c));
+            }
+            sb.append("\n");
+        }
+        for (int v = 1; v <= layout.getMaxValue(); v++) {
+            sb.append(v).append(": 出现 ").append(getHits(v)).append(" 次, 间隔 ").append(getGap(v)).append("\n");
+        }
+        return sb.toString();
+    }
+}